@@ -0,0 +1,164 @@
+package services;
+
+import models.Order;
+import models.OrderItem;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures invoice rendering throughput (invoices/second) of
+ * {@link PDFInvoiceGenerator} against the previous single-page generator,
+ * which is kept below as {@link LegacyGenerator} for comparison only.
+ *
+ * Orders are synthetic, so no database is needed. Built by
+ * {@code mvn test-compile} from the bench source root:
+ *
+ * {@code java -cp target/classes:target/test-classes:<dependencies> services.InvoiceBenchmark [seconds per case]}
+ *
+ * The legacy generator never printed line items, so its numbers are the same
+ * for every item count. "stream" writes to a discarding OutputStream and shows
+ * the cost without the in-memory byte[] copy.
+ *
+ * @author Group04
+ * @version 1.0
+ */
+public class InvoiceBenchmark {
+
+    private static final int[] ITEM_COUNTS = {0, 10, 50, 200};
+    private static final long WARMUP_MS = 1_000;
+
+    public static void main(String[] args) throws IOException {
+        long runMs = (args.length > 0 ? Long.parseLong(args[0]) : 3) * 1000;
+
+        System.out.printf("%-6s %6s %8s %14s %14s %14s%n", "items", "pages", "bytes", "legacy inv/s", "bytes inv/s", "stream inv/s");
+        for (int n : ITEM_COUNTS) {
+            Order order = new Order(4711, 1, "Benchmark Customer (Sample Street 1)", 2, "DELIVERED",
+                LocalDateTime.of(2024, 5, 1, 14, 30), 0);
+            List<OrderItem> items = buildItems(n);
+
+            byte[] pdf = PDFInvoiceGenerator.generateInvoicePDF(order, items);
+            check(pdf);
+
+            double legacy = measure(runMs, () -> LegacyGenerator.generateInvoicePDF(order));
+            double bytes = measure(runMs, () -> PDFInvoiceGenerator.generateInvoicePDF(order, items));
+            double stream = measure(runMs, () -> {
+                try {
+                    PDFInvoiceGenerator.writeInvoice(order, items, OutputStream.nullOutputStream());
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            System.out.printf("%-6d %6d %8d %14.0f %14.0f %14.0f%n", n, countPages(pdf), pdf.length, legacy, bytes, stream);
+        }
+    }
+
+    private static List<OrderItem> buildItems(int n) {
+        List<OrderItem> items = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            items.add(new OrderItem(i + 1, 4711, 100 + i, "Product (" + i + ")", 0.25 + i % 7, 12.5 + i % 13));
+        }
+        return items;
+    }
+
+    private static double measure(long runMs, Runnable task) {
+        long warmupEnd = System.nanoTime() + WARMUP_MS * 1_000_000;
+        while (System.nanoTime() < warmupEnd) task.run();
+
+        long start = System.nanoTime();
+        long end = start + runMs * 1_000_000;
+        long count = 0;
+        long now;
+        do {
+            task.run();
+            count++;
+        } while ((now = System.nanoTime()) < end);
+        return count / ((now - start) / 1e9);
+    }
+
+    /**
+     * Sanity check so a broken generator cannot produce good numbers:
+     * header, trailer and startxref must point at the xref table.
+     */
+    private static void check(byte[] pdf) {
+        if (pdf == null) throw new IllegalStateException("generator returned null");
+        String s = new String(pdf, StandardCharsets.ISO_8859_1);
+        if (!s.startsWith("%PDF-1.4") || !s.endsWith("%%EOF\n")) throw new IllegalStateException("bad header/trailer");
+        int sx = s.lastIndexOf("startxref\n");
+        int xref = Integer.parseInt(s.substring(sx + 10, s.indexOf('\n', sx + 10)));
+        if (!s.startsWith("xref\n", xref)) throw new IllegalStateException("startxref does not point at xref");
+    }
+
+    private static int countPages(byte[] pdf) {
+        String s = new String(pdf, StandardCharsets.ISO_8859_1);
+        int pages = 0;
+        for (int i = s.indexOf("/Type /Page "); i >= 0; i = s.indexOf("/Type /Page ", i + 1)) pages++;
+        return pages;
+    }
+
+    /**
+     * The generator as it was before line items and streaming were added.
+     */
+    private static final class LegacyGenerator {
+
+        static byte[] generateInvoicePDF(Order order) {
+            try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
+                int[] offsets = new int[6];
+                write(baos, "%PDF-1.4\n");
+                write(baos, "%\u00E2\u00E3\u00CF\u00D3\n");
+                offsets[1] = baos.size();
+                write(baos, "1 0 obj\n<< /Type /Catalog /Pages 2 0 R >>\nendobj\n");
+                offsets[2] = baos.size();
+                write(baos, "2 0 obj\n<< /Type /Pages /Kids [3 0 R] /Count 1 >>\nendobj\n");
+                offsets[3] = baos.size();
+                write(baos, "3 0 obj\n<< /Type /Page /Parent 2 0 R /MediaBox [0 0 612 792] /Resources << /Font << /F1 4 0 R >> >> /Contents 5 0 R >>\nendobj\n");
+                offsets[4] = baos.size();
+                write(baos, "4 0 obj\n<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica >>\nendobj\n");
+
+                ByteArrayOutputStream content = new ByteArrayOutputStream();
+                int y = 750;
+                List<String> lines = new ArrayList<>();
+                lines.add("GREEN GROCER - OFFICIAL INVOICE");
+                lines.add("----------------------------------------");
+                lines.add("Order ID: #" + order.getId());
+                lines.add("Customer: " + (order.getCustomerName() != null ? order.getCustomerName() : "Guest"));
+                lines.add("Status:   " + (order.getStatus() != null ? order.getStatus() : ""));
+                lines.add(String.format("Total:    %.2f TL", order.getTotalCost()));
+                String date = (order.getDeliveryTime() != null) ? order.getDeliveryTime().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")) : "ASAP";
+                lines.add("Delivery: " + date);
+                lines.add("");
+                lines.add("Thank you for choosing Group04!");
+                for (String l : lines) {
+                    String esc = l.replace("\\", "\\\\").replace("(", "\\(").replace(")", "\\)");
+                    content.write(("BT /F1 12 Tf 50 " + y + " Td (" + esc + ") Tj ET\n").getBytes(StandardCharsets.ISO_8859_1));
+                    y -= 14;
+                }
+                byte[] contentBytes = content.toByteArray();
+
+                offsets[5] = baos.size();
+                baos.write(("5 0 obj\n<< /Length " + contentBytes.length + " >>\nstream\n").getBytes(StandardCharsets.ISO_8859_1));
+                baos.write(contentBytes);
+                baos.write("\nendstream\nendobj\n".getBytes(StandardCharsets.ISO_8859_1));
+
+                int xrefPos = baos.size();
+                baos.write("xref\n0 6\n0000000000 65535 f \n".getBytes(StandardCharsets.ISO_8859_1));
+                for (int i = 1; i <= 5; i++) {
+                    baos.write(String.format("%010d 00000 n \n", offsets[i]).getBytes(StandardCharsets.ISO_8859_1));
+                }
+                baos.write(("trailer\n<< /Size 6 /Root 1 0 R >>\nstartxref\n" + xrefPos + "\n%%EOF\n").getBytes(StandardCharsets.ISO_8859_1));
+                return baos.toByteArray();
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+        private static void write(ByteArrayOutputStream baos, String s) throws IOException {
+            baos.write(s.getBytes(StandardCharsets.ISO_8859_1));
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package services;
+
+import models.Order;
+import models.OrderItem;
+import models.Product;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Measures {@link OrderDAO#createOrder(Order, List)} latency for orders with
+ * 1, 10 and 50 line items.
+ *
+ * Every order takes 0.01 kg per line from in-stock products and is cancelled
+ * right after it is measured, which restores the stock. The cancelled orders
+ * stay in orderinfo, so run this against a development database only.
+ * It lives in the bench source root, which {@code mvn test-compile} builds
+ * into target/test-classes; it is not part of the application:
+ *
+ * {@code java -cp target/classes:target/test-classes:<dependencies> services.OrderPlacementBenchmark <customerId> [iterations]}
+ *
+ * @author Group04
+ * @version 1.0
+ */
+public class OrderPlacementBenchmark {
+
+    private static final int[] LINE_COUNTS = {1, 10, 50};
+    private static final int WARMUP = 5;
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.out.println("Usage: OrderPlacementBenchmark <customerId> [iterations]");
+            return;
+        }
+        int customerId = Integer.parseInt(args[0]);
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+        try {
+            List<Product> products = new ArrayList<>();
+            for (Product p : ProductCatalogCache.getAllProducts()) {
+                if (p.getStock() >= 1.0) products.add(p);
+            }
+            if (products.isEmpty()) {
+                System.out.println("No products with stock available.");
+                return;
+            }
+
+            OrderDAO orderDAO = new OrderDAO();
+            System.out.printf("%-6s %8s %10s %10s %10s%n", "lines", "orders", "median ms", "p95 ms", "max ms");
+            for (int lines : LINE_COUNTS) {
+                List<OrderItem> items = buildItems(products, lines);
+                for (int i = 0; i < WARMUP; i++) {
+                    placeAndCancel(orderDAO, customerId, items);
+                }
+
+                long[] nanos = new long[iterations];
+                for (int i = 0; i < iterations; i++) {
+                    nanos[i] = placeAndCancel(orderDAO, customerId, items);
+                }
+                Arrays.sort(nanos);
+                System.out.printf("%-6d %8d %10.2f %10.2f %10.2f%n", lines, iterations,
+                    nanos[iterations / 2] / 1e6,
+                    nanos[(int) Math.min(iterations - 1, Math.ceil(iterations * 0.95) - 1)] / 1e6,
+                    nanos[iterations - 1] / 1e6);
+            }
+            System.out.println(DatabaseAdapter.getPoolStats());
+        } finally {
+            InvoiceJobQueue.shutdown(30_000);
+            DatabaseAdapter.shutdown();
+        }
+    }
+
+    /**
+     * Lines cycle through the available products, so with fewer products than
+     * lines some products appear on several lines (like a real cart can).
+     */
+    private static List<OrderItem> buildItems(List<Product> products, int lines) {
+        List<OrderItem> items = new ArrayList<>();
+        for (int i = 0; i < lines; i++) {
+            Product p = products.get(i % products.size());
+            items.add(new OrderItem(p.getId(), p.getName(), 0.01, p.getPrice()));
+        }
+        return items;
+    }
+
+    private static long placeAndCancel(OrderDAO orderDAO, int customerId, List<OrderItem> items) {
+        double total = 0.0;
+        for (OrderItem item : items) total += item.getQuantity() * item.getPricePerUnit();
+        Order order = new Order(0, customerId, null, 0, "CREATED", LocalDateTime.now().plusHours(2), total);
+
+        long start = System.nanoTime();
+        boolean ok = orderDAO.createOrder(order, items);
+        long elapsed = System.nanoTime() - start;
+
+        if (!ok) throw new IllegalStateException("createOrder failed (customer id / stock?)");
+        orderDAO.cancelOrder(order.getId());
+        return elapsed;
+    }
+}
@@ -0,0 +1,222 @@
+package services;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Golden checks and throughput of {@link PricingEngine} against the double
+ * arithmetic the cart used before, kept below as {@link Legacy} for
+ * comparison only.
+ *
+ * The checks price random lines and cart summaries both ways and fail if any
+ * amount differs by more than one kuruş (the old code rounded only when
+ * formatting, so a value sitting exactly on a half kuruş may round either
+ * way). Carts are synthetic, so no database is needed. Built by
+ * {@code mvn test-compile} from the bench source root:
+ *
+ * {@code java -cp target/classes:target/test-classes services.PricingBenchmark [seconds per case]}
+ *
+ * @author Group04
+ * @version 1.0
+ */
+public class PricingBenchmark {
+
+    private static final int[] LINE_COUNTS = {1, 10, 50, 200};
+    private static final int GOLDEN_CASES = 200_000;
+    private static final long WARMUP_MS = 1_000;
+    private static final double[] COUPON_RATES = {0, 5, 10, 20, 25};
+
+    private static volatile long sink;
+
+    public static void main(String[] args) {
+        long runMs = (args.length > 0 ? Long.parseLong(args[0]) : 3) * 1000;
+
+        checkLines();
+        checkSummaries();
+
+        System.out.printf("%-6s %12s %12s %14s %14s%n", "lines", "legacy ns", "engine ns", "convert+eng ns", "engine bytes");
+        for (int n : LINE_COUNTS) {
+            Cart cart = Cart.random(new Random(n), n);
+            PricingEngine.Lines lines = new PricingEngine.Lines();
+            PricingEngine.Quote quote = new PricingEngine.Quote();
+            fill(cart, lines);
+
+            double legacy = measure(runMs, () -> sink += (long) Legacy.priceCart(cart, 10, false));
+            // Session carts keep tiers and minor units per line, so this is the cost of a quote
+            double engine = measure(runMs, () -> sink += PricingEngine.price(lines, 10, false, quote).getTotalMinor());
+            // Including the conversion from double product terms, as for a cart built from scratch
+            double converted = measure(runMs, () -> {
+                fill(cart, lines);
+                sink += PricingEngine.price(lines, 10, false, quote).getTotalMinor();
+            });
+            long bytes = allocatedPerCall(() -> sink += PricingEngine.price(lines, 10, false, quote).getTotalMinor());
+            System.out.printf("%-6d %12.0f %12.0f %14.0f %14d%n", n, legacy, engine, converted, bytes);
+        }
+    }
+
+    private static void fill(Cart cart, PricingEngine.Lines lines) {
+        lines.clear();
+        for (int i = 0; i < cart.size; i++) {
+            lines.add(i, PricingEngine.toMinor(cart.price[i]),
+                      PricingEngine.tierGrams(cart.stock[i], cart.threshold[i]), PricingEngine.toGrams(cart.qty[i]));
+        }
+    }
+
+    /**
+     * Single lines: threshold surcharge against the old addToCart formula.
+     */
+    private static void checkLines() {
+        Random random = new Random(42);
+        int exact = 0;
+        for (int i = 0; i < GOLDEN_CASES; i++) {
+            double price = random.nextInt(10_000) / 100.0 + 0.01;
+            double stock = random.nextInt(50_000) / 100.0;
+            double threshold = random.nextInt(10) == 0 ? 0 : random.nextInt(5_000) / 100.0;
+            double qty = Math.max(0.01, random.nextInt((int) (stock * 100) + 1) / 100.0);
+
+            long expected = Math.round(Legacy.linePrice(price, stock, threshold, qty) * 100);
+            long actual = PricingEngine.linePrice(PricingEngine.toMinor(price),
+                PricingEngine.tierGrams(stock, threshold), PricingEngine.toGrams(qty));
+            exact += compare("line", expected, actual,
+                String.format("price=%.2f stock=%.2f threshold=%.2f qty=%.2f", price, stock, threshold, qty));
+        }
+        System.out.printf("Golden lines: %d/%d exact, rest within 1 kurus%n", exact, GOLDEN_CASES);
+    }
+
+    /**
+     * Cart summaries: VAT, shipping, discounts and total against the old
+     * ShoppingCartController arithmetic, as it was displayed (%.2f).
+     */
+    private static void checkSummaries() {
+        Random random = new Random(7);
+        PricingEngine.Quote quote = new PricingEngine.Quote();
+        int exact = 0;
+        int checked = 0;
+        for (int i = 0; i < GOLDEN_CASES; i++) {
+            long subtotalMinor = random.nextInt(100_000);
+            double rate = COUPON_RATES[random.nextInt(COUPON_RATES.length)];
+            boolean freeShipping = random.nextInt(4) == 0;
+
+            double[] old = Legacy.summary(subtotalMinor / 100.0, rate, freeShipping);
+            PricingEngine.summarize(subtotalMinor, rate, freeShipping, quote);
+            String where = "subtotal=" + subtotalMinor + " rate=" + rate + " freeShipping=" + freeShipping;
+
+            long[] expected = {shown(old[0]), shown(old[1]), shown(old[2]), shown(old[3])};
+            long[] actual = {quote.vat, quote.shipping, quote.promoDiscount + quote.couponDiscount, quote.total};
+            String[] names = {"vat", "shipping", "discount", "total"};
+            for (int k = 0; k < expected.length; k++) {
+                exact += compare(names[k], expected[k], actual[k], where);
+                checked++;
+            }
+        }
+        System.out.printf("Golden summaries: %d/%d amounts exact, rest within 1 kurus%n", exact, checked);
+    }
+
+    // Kuruş the old screen showed for an amount
+    private static long shown(double amount) {
+        return Math.round(Double.parseDouble(String.format(Locale.ROOT, "%.2f", amount)) * 100);
+    }
+
+    private static int compare(String what, long expected, long actual, String where) {
+        if (Math.abs(expected - actual) > 1) {
+            throw new IllegalStateException(what + ": expected " + expected + " but got " + actual + " for " + where);
+        }
+        return expected == actual ? 1 : 0;
+    }
+
+    /**
+     * @return average time of one call in ns
+     */
+    private static double measure(long runMs, Runnable task) {
+        long warmupEnd = System.nanoTime() + WARMUP_MS * 1_000_000;
+        while (System.nanoTime() < warmupEnd) task.run();
+
+        long start = System.nanoTime();
+        long end = start + runMs * 1_000_000;
+        long count = 0;
+        long now;
+        do {
+            task.run();
+            count++;
+        } while ((now = System.nanoTime()) < end);
+        return (now - start) / (double) count;
+    }
+
+    /**
+     * @return heap bytes allocated per call by the current thread (HotSpot only, -1 elsewhere)
+     */
+    private static long allocatedPerCall(Runnable task) {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) return -1;
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        int calls = 100_000;
+        long before = mx.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < calls; i++) task.run();
+        return (mx.getThreadAllocatedBytes(thread) - before) / calls;
+    }
+
+    /**
+     * Synthetic cart: product terms and quantities as parallel arrays.
+     */
+    private static final class Cart {
+        int size;
+        double[] price;
+        double[] stock;
+        double[] threshold;
+        double[] qty;
+
+        static Cart random(Random random, int n) {
+            Cart cart = new Cart();
+            cart.size = n;
+            cart.price = new double[n];
+            cart.stock = new double[n];
+            cart.threshold = new double[n];
+            cart.qty = new double[n];
+            for (int i = 0; i < n; i++) {
+                cart.price[i] = 5 + random.nextInt(5_000) / 100.0;
+                cart.stock[i] = 10 + random.nextInt(20_000) / 100.0;
+                cart.threshold[i] = random.nextInt(2_000) / 100.0;
+                cart.qty[i] = 0.25 + random.nextInt(800) / 100.0;
+            }
+            return cart;
+        }
+    }
+
+    /**
+     * The pricing as it was before PricingEngine.
+     */
+    private static final class Legacy {
+
+        // CartService.addToCart
+        static double linePrice(double basePrice, double stock, double threshold, double quantity) {
+            double normalQty;
+            if (threshold > 0 && stock > threshold) {
+                normalQty = Math.max(0.0, Math.min(quantity, stock - threshold));
+            } else {
+                normalQty = quantity;
+            }
+            double doubledQty = Math.max(0.0, quantity - normalQty);
+            return normalQty * basePrice + doubledQty * basePrice * 2.0;
+        }
+
+        // ShoppingCartController.refreshCart: {vat, shipping, discount, total}
+        static double[] summary(double subtotal, double couponRate, boolean freeShipping) {
+            double vat = subtotal * 0.18;
+            boolean thresholdMet = subtotal >= 150.0;
+            double shipping = (freeShipping || thresholdMet) ? 0.0 : 20.0;
+            double promoDiscount = (subtotal > 200) ? (subtotal * 0.05) : 0.0;
+            double couponDiscount = subtotal * (couponRate / 100.0);
+            double totalDiscount = promoDiscount + couponDiscount;
+            return new double[] {vat, shipping, totalDiscount, subtotal + vat + shipping - totalDiscount};
+        }
+
+        static double priceCart(Cart cart, double couponRate, boolean freeShipping) {
+            double subtotal = 0;
+            for (int i = 0; i < cart.size; i++) {
+                subtotal += linePrice(cart.price[i], cart.stock[i], cart.threshold[i], cart.qty[i]);
+            }
+            return summary(subtotal, couponRate, freeShipping)[3];
+        }
+    }
+}
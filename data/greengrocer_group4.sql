@@ -67,6 +67,7 @@ CREATE TABLE `messageinfo` (
   PRIMARY KEY (`id`),
   KEY `idx_msg_to` (`to_user_id`),
   KEY `idx_msg_from` (`from_user_id`),
+  KEY `idx_msg_pair_id` (`from_user_id`,`to_user_id`,`id`),
   CONSTRAINT `fk_msg_from` FOREIGN KEY (`from_user_id`) REFERENCES `userinfo` (`id`),
   CONSTRAINT `fk_msg_to` FOREIGN KEY (`to_user_id`) REFERENCES `userinfo` (`id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
@@ -104,7 +105,8 @@ CREATE TABLE `orderinfo` (
   PRIMARY KEY (`id`),
   KEY `idx_order_customer` (`customer_id`),
   KEY `idx_order_carrier` (`carrier_id`),
-  KEY `idx_order_status` (`status`),
+  KEY `idx_order_status_requested` (`status`,`requested_delivery_time`),
+  KEY `idx_order_requested_time` (`requested_delivery_time`),
   CONSTRAINT `fk_order_carrier` FOREIGN KEY (`carrier_id`) REFERENCES `userinfo` (`id`),
   CONSTRAINT `fk_order_customer` FOREIGN KEY (`customer_id`) REFERENCES `userinfo` (`id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
@@ -212,6 +214,23 @@ INSERT INTO `userinfo` VALUES (1,'cust','cust','customer','Ahmet Müşteri','Ist
 /*!40000 ALTER TABLE `userinfo` ENABLE KEYS */;
 UNLOCK TABLES;
 
+-- Table structure for table `couponinfo`
+-- code_norm (trimmed, upper case) carries the unique index, so lookups and
+-- ON DUPLICATE KEY are case-insensitive without UPPER() scans. Codes are served
+-- from memory by services.CouponRegistry. For an existing database:
+--   ALTER TABLE `couponinfo` ADD COLUMN `code_norm` varchar(32) GENERATED ALWAYS AS (upper(trim(`code`))) STORED,
+--     ADD UNIQUE KEY `uq_coupon_code_norm` (`code_norm`);
+DROP TABLE IF EXISTS `couponinfo`;
+CREATE TABLE `couponinfo` (
+  `id` int NOT NULL AUTO_INCREMENT,
+  `code` varchar(32) COLLATE utf8mb4_unicode_ci NOT NULL,
+  `code_norm` varchar(32) COLLATE utf8mb4_unicode_ci GENERATED ALWAYS AS (upper(trim(`code`))) STORED,
+  `discount_rate` decimal(5,2) NOT NULL DEFAULT '0.00',
+  `is_active` tinyint(1) NOT NULL DEFAULT '1',
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uq_coupon_code_norm` (`code_norm`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
 -- Table structure for table `user_coupons`
 DROP TABLE IF EXISTS `user_coupons`;
 CREATE TABLE `user_coupons` (
@@ -250,7 +269,7 @@ CREATE TRIGGER award_save20 AFTER INSERT ON orderinfo
 FOR EACH ROW
 BEGIN
   DECLARE couponId INT;
-  SELECT id INTO couponId FROM couponinfo WHERE code = 'SAVE20' AND is_active = 1 LIMIT 1;
+  SELECT id INTO couponId FROM couponinfo WHERE code_norm = 'SAVE20' AND is_active = 1 LIMIT 1;
   IF couponId IS NOT NULL AND NEW.total_cost >= 500 THEN
     IF NOT EXISTS (SELECT 1 FROM user_coupons uc WHERE uc.user_id = NEW.customer_id AND uc.coupon_id = couponId AND uc.redeemed = 0) THEN
       INSERT INTO user_coupons (user_id, coupon_id, redeemed, assigned_at) VALUES (NEW.customer_id, couponId, 0, NOW());
@@ -259,6 +278,69 @@ BEGIN
 END$$
 DELIMITER ;
 
+-- Product image renditions (small: product cards, medium: product form preview).
+-- Filled by services.ThumbnailService when an image is uploaded; existing rows can be
+-- backfilled with: java -cp <classpath> services.ThumbnailService --backfill
+ALTER TABLE `productinfo`
+  ADD COLUMN `image_thumb_small` mediumblob AFTER `image_blob`,
+  ADD COLUMN `image_thumb_medium` mediumblob AFTER `image_thumb_small`;
+
+-- Invoice PDFs, one row per order, stored as raw bytes (see services.InvoiceStore).
+-- orderinfo.invoice_pdf / invoice_log are legacy and no longer written; copy old rows
+-- over (Base64 decoded) with: java -cp <classpath> services.InvoiceStore --migrate
+DROP TABLE IF EXISTS `invoice_store`;
+CREATE TABLE `invoice_store` (
+  `order_id` int NOT NULL,
+  `sha256` char(64) COLLATE utf8mb4_unicode_ci NOT NULL,
+  `size_bytes` int NOT NULL,
+  `pdf` longblob NOT NULL,
+  `created_at` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (`order_id`),
+  CONSTRAINT `fk_invoice_order` FOREIGN KEY (`order_id`) REFERENCES `orderinfo` (`id`) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Analytics rollups maintained by OrderDAO together with each order change
+-- (see services.RevenueRollup). Cancelled orders are not counted.
+-- Recompute from the order tables with: java -cp <classpath> services.RevenueRollup --rebuild
+DROP TABLE IF EXISTS `revenue_daily`;
+CREATE TABLE `revenue_daily` (
+  `day` date NOT NULL,
+  `order_count` int NOT NULL DEFAULT '0',
+  `revenue` decimal(12,2) NOT NULL DEFAULT '0.00',
+  `delivered_count` int NOT NULL DEFAULT '0',
+  `delivered_revenue` decimal(12,2) NOT NULL DEFAULT '0.00',
+  PRIMARY KEY (`day`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+DROP TABLE IF EXISTS `revenue_product`;
+CREATE TABLE `revenue_product` (
+  `product_id` int NOT NULL,
+  `revenue` decimal(12,2) NOT NULL DEFAULT '0.00',
+  `qty_kg` decimal(12,2) NOT NULL DEFAULT '0.00',
+  `line_count` int NOT NULL DEFAULT '0',
+  PRIMARY KEY (`product_id`),
+  KEY `idx_revenue_product_revenue` (`revenue`),
+  KEY `idx_revenue_product_qty` (`qty_kg`),
+  CONSTRAINT `fk_revenue_product` FOREIGN KEY (`product_id`) REFERENCES `productinfo` (`id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Saved shopping carts, one row per cart line (see services.CartStore).
+-- Written behind the in-memory carts in batches and read back on login.
+DROP TABLE IF EXISTS `cartinfo`;
+CREATE TABLE `cartinfo` (
+  `user_id` int NOT NULL,
+  `product_id` int NOT NULL,
+  `line_no` int NOT NULL DEFAULT '0',
+  `amount_kg` decimal(10,3) NOT NULL,
+  `unit_price` decimal(12,4) NOT NULL,
+  `line_total_minor` bigint NOT NULL,
+  `updated_at` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+  PRIMARY KEY (`user_id`,`product_id`),
+  KEY `fk_cart_product` (`product_id`),
+  CONSTRAINT `fk_cart_user` FOREIGN KEY (`user_id`) REFERENCES `userinfo` (`id`) ON DELETE CASCADE,
+  CONSTRAINT `fk_cart_product` FOREIGN KEY (`product_id`) REFERENCES `productinfo` (`id`) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
 /*!40103 SET TIME_ZONE=@OLD_TIME_ZONE */;
 
 /*!40101 SET SQL_MODE=@OLD_SQL_MODE */;
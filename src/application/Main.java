@@ -9,7 +9,9 @@ import javafx.stage.Stage;
 import java.sql.Connection;
 import java.sql.SQLException;
 
+import services.CartService;
 import services.DatabaseAdapter;
+import services.InvoiceJobQueue;
 
 /**
  * GreenGrocer Application
@@ -61,6 +63,23 @@ public class Main extends Application {
     }
 
 
+    /**
+     * JavaFX lifecycle method called when the last window closes.
+     * Saves pending carts, lets queued invoice jobs finish and releases pooled
+     * database connections. Pool and statement cache statistics are printed only with
+     * -Dgreengrocer.db.stats=true.
+     */
+    @Override
+    public void stop() {
+        if (Boolean.getBoolean("greengrocer.db.stats")) {
+            System.out.println("Closing database connections: " + DatabaseAdapter.getPoolStats());
+            System.out.println(DatabaseAdapter.getStatementCacheStats());
+        }
+        CartService.shutdown();
+        InvoiceJobQueue.shutdown(5_000);
+        DatabaseAdapter.shutdown();
+    }
+
     /**
      * Application entry point.
      * This method:
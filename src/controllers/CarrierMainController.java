@@ -19,8 +19,9 @@ import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.stage.Stage;
 import models.Order;
 import models.User;
+import services.AsyncDAO;
 import services.OrderDAO;
-import java.util.List;
+import utils.FxAsync;
 
 /**
  * Controller for carrier dashboard: shows available orders and assigned deliveries.
@@ -47,6 +48,10 @@ public class CarrierMainController {
     private User loggedInCarrier;
     private OrderDAO orderDAO;
 
+    // A new refresh supersedes one still in flight
+    private final FxAsync.Latest pendingRequest = new FxAsync.Latest();
+    private final FxAsync.Latest deliveriesRequest = new FxAsync.Latest();
+
     @FXML
     public void initialize() {
         orderDAO = new OrderDAO();
@@ -89,12 +94,15 @@ public class CarrierMainController {
         if (loggedInCarrier == null) return;
 
         // 1. Available Orders
-        List<Order> pendingOrders = orderDAO.getPendingOrders();
-        availableOrdersTable.setItems(FXCollections.observableArrayList(pendingOrders));
+        pendingRequest.submit(AsyncDAO::getPendingOrders,
+            pendingOrders -> availableOrdersTable.setItems(FXCollections.observableArrayList(pendingOrders)),
+            e -> showAlert("Could not load available orders: " + e.getMessage()));
 
         // 2. My Deliveries (ASSIGNED)
-        List<Order> myOrders = orderDAO.getOrdersByCarrierAndStatus(loggedInCarrier.getId(), "ASSIGNED");
-        currentOrdersTable.setItems(FXCollections.observableArrayList(myOrders));
+        int carrierId = loggedInCarrier.getId();
+        deliveriesRequest.submit(() -> AsyncDAO.getOrdersByCarrierAndStatus(carrierId, "ASSIGNED"),
+            myOrders -> currentOrdersTable.setItems(FXCollections.observableArrayList(myOrders)),
+            e -> showAlert("Could not load your deliveries: " + e.getMessage()));
     }
 
     @FXML
@@ -104,11 +112,12 @@ public class CarrierMainController {
             showAlert("Please select an order first!");
             return;
         }
-        boolean success = orderDAO.assignOrderToCarrier(selectedOrder.getId(), loggedInCarrier.getId());
-        if (success) {
-            showAlert("Order Accepted! 🏍️");
-            refreshData();
-        }
+        FxAsync.deliver(AsyncDAO.assignOrderToCarrier(selectedOrder.getId(), loggedInCarrier.getId()), success -> {
+            if (success) {
+                showAlert("Order Accepted! 🏍️");
+                refreshData();
+            }
+        }, e -> showAlert("Could not accept order: " + e.getMessage()));
     }
 
     @FXML
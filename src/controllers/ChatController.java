@@ -1,19 +1,23 @@
 package controllers;
 
-import javafx.animation.PauseTransition;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
+import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.ListView;
 import javafx.scene.control.TextField;
-import javafx.util.Duration;
+import javafx.application.Platform;
 import models.User;
 import models.Message;
+import services.AsyncDAO;
+import services.MessageBus;
 import services.MessageDAO;
 import services.UserDAO;
+import utils.FxAsync;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -25,12 +29,25 @@ public class ChatController {
     @FXML private ListView<String> messagesList;
     @FXML private TextField messageField;
     @FXML private Button sendButton;
+    @FXML private Button loadEarlierButton;
 
     private User currentUser;
     private ObservableList<String> messages;
     private MessageDAO messageDAO = new MessageDAO();
     private int ownerId = -1;
 
+    // Ids of the oldest and newest message shown (0 while the conversation is empty)
+    private int oldestMessageId = 0;
+    private int newestMessageId = 0;
+    private boolean conversationLoaded = false;
+
+    private final FxAsync.Latest conversationRequest = new FxAsync.Latest();
+    private final FxAsync.Latest historyRequest = new FxAsync.Latest();
+    private final FxAsync.Latest syncRequest = new FxAsync.Latest();
+
+    // Push delivery of new messages; closed with the window
+    private MessageBus.Subscription subscription;
+
     @FXML
     private void initialize() {
         messages = FXCollections.observableArrayList();
@@ -82,18 +99,98 @@ public class ChatController {
             return;
         }
 
-        // Load conversation and display using the fixed display name "Owner"
-        List<Message> convo = messageDAO.getConversation(this.currentUser.getId(), ownerId);
+        // Load the latest page of the conversation; older pages are loaded on demand
+        int customerId = this.currentUser.getId();
+        int owner = ownerId;
+
+        // New messages (including owner replies) are pushed by the bus
+        if (subscription != null) subscription.close();
+        subscription = MessageBus.subscribe(customerId, m -> {
+            if (m.getFromUserId() == owner || m.getToUserId() == owner) {
+                Platform.runLater(this::syncNewMessages);
+            }
+        });
+        FxAsync.onWindowHidden(messagesList, () -> subscription.close());
 
-        if (convo.isEmpty()) {
-            messages.add("Owner: Hello! How can I help you today?");
-        } else {
-            for (Message m : convo) {
-                String senderName = (m.getFromUserId() == this.currentUser.getId()) ? (this.currentUser.getUsername() != null ? this.currentUser.getUsername() : "") : "Owner";
-                messages.add(senderName + ": " + m.getContent());
+        conversationRequest.submit(() -> AsyncDAO.supply(
+            () -> messageDAO.getLatestMessages(customerId, owner, MessageDAO.PAGE_SIZE)
+        ), page -> {
+            if (page.isEmpty()) {
+                messages.add("Owner: Hello! How can I help you today?");
+            } else {
+                for (Message m : page) {
+                    messages.add(format(m));
+                }
+                oldestMessageId = page.get(0).getId();
+                newestMessageId = page.get(page.size() - 1).getId();
             }
+            conversationLoaded = true;
+            showLoadEarlier(page.size() == MessageDAO.PAGE_SIZE);
+            messagesList.scrollTo(messages.size() - 1);
+        }, null);
+    }
+
+    /**
+     * Prepends the previous page of history.
+     */
+    @FXML
+    private void handleLoadEarlier(ActionEvent event) {
+        if (!conversationLoaded || oldestMessageId == 0) return;
+        int customerId = currentUser.getId();
+        int owner = ownerId;
+        int before = oldestMessageId;
+
+        historyRequest.submit(() -> AsyncDAO.supply(
+            () -> messageDAO.getMessagesBefore(customerId, owner, before, MessageDAO.PAGE_SIZE)
+        ), page -> {
+            List<String> earlier = new ArrayList<>();
+            for (Message m : page) {
+                earlier.add(format(m));
+            }
+            messages.addAll(0, earlier);
+            if (!page.isEmpty()) oldestMessageId = page.get(0).getId();
+            showLoadEarlier(page.size() == MessageDAO.PAGE_SIZE);
+            messagesList.scrollTo(0);
+        }, null);
+    }
+
+    /**
+     * Appends only the messages newer than the last one shown.
+     */
+    private void syncNewMessages() {
+        if (!conversationLoaded) return;
+        int customerId = currentUser.getId();
+        int owner = ownerId;
+        int since = newestMessageId;
+
+        syncRequest.submit(() -> AsyncDAO.supply(
+            () -> messageDAO.getMessagesSince(customerId, owner, since, MessageDAO.PAGE_SIZE)
+        ), this::appendMessages, null);
+    }
+
+    private void appendMessages(List<Message> newMessages) {
+        for (Message m : newMessages) {
+            if (m.getId() <= newestMessageId) continue; // already shown
+            messages.add(format(m));
+            newestMessageId = m.getId();
         }
-        messagesList.scrollTo(messages.size() - 1);
+        if (!newMessages.isEmpty()) messagesList.scrollTo(messages.size() - 1);
+        if (newMessages.size() == MessageDAO.PAGE_SIZE) syncNewMessages(); // more are waiting
+    }
+
+    /**
+     * Display line for a message, using the fixed display name "Owner" for the owner.
+     */
+    private String format(Message m) {
+        String senderName = (m.getFromUserId() == currentUser.getId())
+            ? (currentUser.getUsername() != null ? currentUser.getUsername() : "")
+            : "Owner";
+        return senderName + ": " + m.getContent();
+    }
+
+    private void showLoadEarlier(boolean show) {
+        loadEarlierButton.setVisible(show);
+        loadEarlierButton.setManaged(show);
     }
 
     @FXML
@@ -101,24 +198,28 @@ public class ChatController {
         String text = messageField.getText();
         if (text == null || text.trim().isEmpty()) return;
 
-        // Save customer message
+        // Save customer message; the bus then triggers the append of everything
+        // newer than the last line shown, and later delivers the owner's reply
         Message m = new Message(currentUser.getId(), ownerId, text.trim());
-        messageDAO.saveMessage(m);
-
-        String sender = currentUser != null ? (currentUser.getUsername() != null ? currentUser.getUsername() : "") : "You";
-        messages.add(sender + ": " + text.trim());
         messageField.clear();
-        messagesList.scrollTo(messages.size() - 1);
-
-        // Simulate owner reply (and persist)
-        PauseTransition pause = new PauseTransition(Duration.seconds(1.0));
-        pause.setOnFinished(e -> {
-            String reply = "Thanks for your message! We'll get back to you shortly.";
-            Message ownerMsg = new Message(ownerId, currentUser.getId(), reply);
-            messageDAO.saveMessage(ownerMsg);
-            messages.add("Owner: " + reply);
-            messagesList.scrollTo(messages.size() - 1);
-        });
-        pause.play();
+        FxAsync.deliver(AsyncDAO.supply(() -> messageDAO.saveMessage(m)),
+            saved -> { if (!saved) restoreUnsent(m.getContent()); },
+            e -> restoreUnsent(m.getContent()));
+    }
+
+    private void showAlert(Alert.AlertType type, String title, String content) {
+        Alert alert = new Alert(type);
+        alert.setTitle(title);
+        alert.setHeaderText(null);
+        alert.setContentText(content);
+        alert.showAndWait();
+    }
+
+    // Puts an unsent message back into the input so it is not lost
+    private void restoreUnsent(String text) {
+        if (messageField.getText() == null || messageField.getText().isEmpty()) {
+            messageField.setText(text);
+        }
+        showAlert(Alert.AlertType.ERROR, "Error", "Your message could not be sent. Please try again.");
     }
 }
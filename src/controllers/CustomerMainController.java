@@ -18,10 +18,13 @@ import javafx.stage.Stage;
 
 import models.Product;
 import models.User;
-import services.ProductDAO;
-import services.CartService;
+import services.AsyncDAO;
+import services.ProductImageCache;
+import services.ProductService;
+import services.ThumbnailService.Rendition;
+import utils.DecodedImageCache;
+import utils.FxAsync;
 
-import java.io.ByteArrayInputStream;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -52,14 +55,17 @@ public class CustomerMainController {
     private User currentUser;
     private List<Product> masterVegetables = new ArrayList<>();
     private List<Product> masterFruits = new ArrayList<>();
-    private ProductDAO productDAO;
+    private long renderedCatalogVersion = -1; // catalog version currently on screen
+
+    // Background requests; a newer request supersedes (cancels) the older one
+    private final FxAsync.Latest catalogRequest = new FxAsync.Latest();
+    private final FxAsync.Latest renderRequest = new FxAsync.Latest();
     
     private Product selectedProduct = null; 
     private VBox selectedCard = null;        
     
     @FXML
     private void initialize() {
-        productDAO = new ProductDAO();
         loadProducts();
         
         // Dynamic search
@@ -100,8 +106,18 @@ public class CustomerMainController {
         imageView.setFitWidth(90);
         imageView.setPreserveRatio(true);
         
-        if (product.getImage() != null && product.getImage().length > 0) {
-            imageView.setImage(new Image(new ByteArrayInputStream(product.getImage())));
+        // Images are not part of the catalog query; use the (prefetched) cached bytes
+        // and reuse the decoded 90x90 image instead of decoding on every redraw.
+        // On a miss the card shows its empty frame until the image is loaded in the background.
+        byte[] imageBytes = ProductImageCache.peek(product.getId(), Rendition.SMALL);
+        if (imageBytes != null) {
+            Image cardImage = DecodedImageCache.get(product.getId(), imageBytes, 90, 90);
+            if (cardImage != null) imageView.setImage(cardImage);
+        } else {
+            FxAsync.deliver(AsyncDAO.getProductImage(product.getId(), Rendition.SMALL), bytes -> {
+                Image cardImage = DecodedImageCache.get(product.getId(), bytes, 90, 90);
+                if (cardImage != null) imageView.setImage(cardImage);
+            }, e -> e.printStackTrace());
         }
         imageContainer.getChildren().add(imageView);
         
@@ -184,11 +200,19 @@ public class CustomerMainController {
     }
     
     /**
-     * Load products and create cards
+     * Load products in the background and create cards
      */
     private void loadProducts() {
-        List<Product> allProducts = productDAO.getAllProducts();
-        
+        // Skip the rebuild entirely when the catalog has not changed since the last render
+        long version = ProductService.getCatalogVersion();
+        if (version == renderedCatalogVersion) return;
+
+        catalogRequest.submit(AsyncDAO::getAllProducts,
+            allProducts -> showCatalog(allProducts, version),
+            e -> showAlert(Alert.AlertType.ERROR, "Error", "Could not load products: " + e.getMessage()));
+    }
+
+    private void showCatalog(List<Product> allProducts, long version) {
         masterVegetables.clear();
         masterFruits.clear();
         
@@ -206,22 +230,14 @@ public class CustomerMainController {
         masterFruits.sort((p1, p2) -> p1.getName().compareTo(p2.getName()));
         
         displayProducts();
+        renderedCatalogVersion = version;
     }
     
     /**
      * ✅ YENİ: Display products as cards
      */
     private void displayProducts() {
-        vegetableTilePane.getChildren().clear();
-        fruitTilePane.getChildren().clear();
-        
-        for (Product p : masterVegetables) {
-            vegetableTilePane.getChildren().add(createProductCard(p));
-        }
-        
-        for (Product p : masterFruits) {
-            fruitTilePane.getChildren().add(createProductCard(p));
-        }
+        renderCards(new ArrayList<>(masterVegetables), new ArrayList<>(masterFruits));
     }
     
     @FXML
@@ -236,21 +252,48 @@ public class CustomerMainController {
         }
         
         String lower = keyword.toLowerCase();
-        
-        vegetableTilePane.getChildren().clear();
-        fruitTilePane.getChildren().clear();
-        
+
+        List<Product> vegMatches = new ArrayList<>();
+        List<Product> fruitMatches = new ArrayList<>();
         for (Product p : masterVegetables) {
-            if (p.getName().toLowerCase().contains(lower)) {
-                vegetableTilePane.getChildren().add(createProductCard(p));
-            }
+            if (p.getName().toLowerCase().contains(lower)) vegMatches.add(p);
         }
-        
         for (Product p : masterFruits) {
-            if (p.getName().toLowerCase().contains(lower)) {
+            if (p.getName().toLowerCase().contains(lower)) fruitMatches.add(p);
+        }
+        renderCards(vegMatches, fruitMatches);
+    }
+
+    /**
+     * Loads the images of the tiles about to be shown in one background query,
+     * then replaces the cards. A newer search keystroke cancels a pending render.
+     */
+    private void renderCards(List<Product> vegetables, List<Product> fruits) {
+        List<Integer> ids = new ArrayList<>();
+        for (Product p : vegetables) ids.add(p.getId());
+        for (Product p : fruits) ids.add(p.getId());
+
+        Runnable showCards = () -> {
+            vegetableTilePane.getChildren().clear();
+            fruitTilePane.getChildren().clear();
+
+            for (Product p : vegetables) {
+                vegetableTilePane.getChildren().add(createProductCard(p));
+            }
+
+            for (Product p : fruits) {
                 fruitTilePane.getChildren().add(createProductCard(p));
             }
-        }
+        };
+
+        // If the bulk prefetch fails the cards still render and load their images one by one in the background
+        renderRequest.submit(() -> AsyncDAO.supply(() -> {
+            ProductImageCache.prefetch(ids);
+            return ids;
+        }), loaded -> showCards.run(), e -> {
+            e.printStackTrace();
+            showCards.run();
+        });
     }
     
     @FXML
@@ -280,25 +323,36 @@ public class CustomerMainController {
                 return;
             }
 
-            double addedTotal = CartService.addToCart(selectedProduct, quantity);
-
-            showAlert(Alert.AlertType.INFORMATION, "Added to Cart",
-                String.format("Successfully added!\n\nProduct: %s\nQuantity: %.2f kg\nTotal: %.2f₺",
-                    selectedProduct.getName(), quantity, addedTotal));
+            // Holding stock reads the database, so the add runs in the background
+            Product product = selectedProduct;
+            addToCartButton.setDisable(true);
+            FxAsync.deliver(AsyncDAO.addToCart(currentUser.getId(), product, quantity), addedTotal -> {
+                addToCartButton.setDisable(false);
+                showAlert(Alert.AlertType.INFORMATION, "Added to Cart",
+                    String.format("Successfully added!\n\nProduct: %s\nQuantity: %.2f kg\nTotal: %.2f₺",
+                        product.getName(), quantity, addedTotal));
 
-            quantityField.clear();
+                quantityField.clear();
 
-            // Deselect card
-            if (selectedCard != null) {
-                selectedCard.setStyle(selectedCard.getStyle().replace("-fx-border-color: #27ae60; -fx-border-width: 4;", ""));
-            }
-            selectedProduct = null;
-            selectedCard = null;
+                // Deselect card (unless another product was picked meanwhile)
+                if (selectedProduct != product) return;
+                if (selectedCard != null) {
+                    selectedCard.setStyle(selectedCard.getStyle().replace("-fx-border-color: #27ae60; -fx-border-width: 4;", ""));
+                }
+                selectedProduct = null;
+                selectedCard = null;
+            }, e -> {
+                addToCartButton.setDisable(false);
+                if (e instanceof IllegalArgumentException) {
+                    showAlert(Alert.AlertType.ERROR, "Invalid Quantity", e.getMessage());
+                } else {
+                    e.printStackTrace();
+                    showAlert(Alert.AlertType.ERROR, "Error", "Failed to add to cart: " + e.getMessage());
+                }
+            });
 
         } catch (NumberFormatException e) {
             showAlert(Alert.AlertType.ERROR, "Invalid Input", "Please enter a valid number!");
-        } catch (IllegalArgumentException e) {
-            showAlert(Alert.AlertType.ERROR, "Invalid Quantity", e.getMessage());
         } catch (Exception e) {
             e.printStackTrace();
             showAlert(Alert.AlertType.ERROR, "Error", "Failed to add to cart: " + e.getMessage());
@@ -393,6 +447,13 @@ public class CustomerMainController {
         confirm.setContentText("Do you want to logout?");
         
         if (confirm.showAndWait().get() == ButtonType.OK) {
+            // Saving the cart queries the database; do it off the FX thread
+            if (currentUser != null) {
+                AsyncDAO.endCartSession(currentUser.getId()).exceptionally(e -> {
+                    e.printStackTrace();
+                    return null;
+                });
+            }
             try {
                 Parent root = FXMLLoader.load(getClass().getResource("/fxml/Login.fxml"));
                 Scene scene = new Scene(root, 960, 540);
@@ -18,7 +18,9 @@ import javafx.util.Callback;
 
 import models.Order;
 import models.User;
-import services.OrderDAO;
+import services.AsyncDAO;
+import services.InvoiceJobQueue;
+import services.InvoiceStore;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
@@ -26,14 +28,18 @@ import javafx.stage.Modality;
 import javafx.scene.layout.HBox;
 import services.CarrierRatingDAO;
 import models.CarrierRating;
+import utils.FxAsync;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.OutputStream;
 import java.awt.Desktop;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Controller for displaying and managing user's orders.
@@ -51,11 +57,12 @@ public class MyOrdersController {
     private TableColumn<Order, Void> colAction;
 
     private User currentUser;
-    private OrderDAO orderDAO;
+
+    private static final long INVOICE_WAIT_SECONDS = 15;
+    private final FxAsync.Latest ordersRequest = new FxAsync.Latest();
 
     @FXML
     public void initialize() {
-        orderDAO = new OrderDAO();
         setupColumns();
         addActionButtonColumn();
     }
@@ -178,127 +185,124 @@ public class MyOrdersController {
         }
     }
 
-    private void handleViewInvoice(Order order)
-{
-    String selectSql = "SELECT invoice_pdf, invoice_log FROM orderinfo WHERE id = ?";
-    String updateSql = "UPDATE orderinfo SET invoice_pdf = ? WHERE id = ?";
-
-        String savedPath = null;
-        try (Connection conn = services.DatabaseAdapter.getConnection();
-            PreparedStatement selectStmt = conn.prepareStatement(selectSql))
-        {
-        selectStmt.setInt(1, order.getId());
-
-        try (ResultSet rs = selectStmt.executeQuery())
-        {
-            if (!rs.next())
-            {
-                showAlert(Alert.AlertType.WARNING, "No Data", "Order not found in DB.");
-                return;
-            }
-
-            byte[] data = rs.getBytes("invoice_pdf");
-            String base64Log = null;
-
-            if (data == null || data.length == 0) {
-                // try to read invoice_log (Base64 CLOB)
-                base64Log = rs.getString("invoice_log");
-                if (base64Log != null && !base64Log.isEmpty()) {
-                    try { data = java.util.Base64.getDecoder().decode(base64Log); } catch (Exception ex) { data = null; }
-                }
+    /**
+     * Loads (or generates) the invoice in the background, then opens it.
+     * The FX thread is only used for the resulting alerts, and no worker
+     * thread is held while the invoice job runs.
+     */
+    private void handleViewInvoice(Order order) {
+        File tempFile = new File("Invoice_" + order.getId() + ".pdf");
+        CompletableFuture<File> result = AsyncDAO.supply(() -> unchecked(() -> copyStoredInvoice(order.getId(), tempFile)))
+            // Nothing stored yet: chain on the order's invoice job, starting one if none is queued
+            .thenCompose(copied -> copied ? CompletableFuture.<byte[]>completedFuture(null) : awaitInvoice(order))
+            .thenCompose(data -> AsyncDAO.supply(() -> unchecked(() -> writeAndOpenInvoice(tempFile, data))));
+        FxAsync.deliver(result, savedFile -> {
+            if (savedFile != null) {
+                showAlert(Alert.AlertType.INFORMATION, "Saved", "Invoice saved to: " + savedFile.getAbsolutePath());
             }
-            // If still missing OR content doesn't look like a PDF, generate on the fly and store both forms
-            boolean looksLikePdf = (data != null && data.length >= 4 && new String(data, 0, 4, java.nio.charset.StandardCharsets.ISO_8859_1).startsWith("%PDF"));
-            if (!looksLikePdf) {
-                data = services.PDFInvoiceGenerator.generateInvoicePDF(order);
-                data = services.PDFInvoiceGenerator.generateInvoicePDF(order);
-
-                if (data == null || data.length == 0) {
-                    showAlert(Alert.AlertType.ERROR, "Error", "Invoice generation failed.");
-                    return;
-                }
+        }, e -> {
+            e.printStackTrace();
+            String msg = "Could not open invoice: " + (e.getMessage() != null ? e.getMessage() : "Unknown error");
+            showAlert(Alert.AlertType.ERROR, "Error", msg);
+        });
+    }
 
-                try (PreparedStatement updateStmt = conn.prepareStatement(updateSql)) {
-                    updateStmt.setBytes(1, data);
-                    updateStmt.setInt(2, order.getId());
-                    updateStmt.executeUpdate();
-                }
+    /**
+     * Streams the stored invoice of an order into a file.
+     *
+     * @return false if no invoice is stored yet
+     */
+    private static boolean copyStoredInvoice(int orderId, File file) throws Exception {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+            return InvoiceStore.copyTo(orderId, out) > 0;
+        }
+    }
 
-                // Also store base64 into invoice_log
-                try (PreparedStatement pstmtLog = conn.prepareStatement("UPDATE orderinfo SET invoice_log = ? WHERE id = ?")) {
-                    String base64 = java.util.Base64.getEncoder().encodeToString(data);
-                    pstmtLog.setString(1, base64);
-                    pstmtLog.setInt(2, order.getId());
-                    pstmtLog.executeUpdate();
-                } catch (Exception e) {
-                    System.err.println("Warning: failed to save invoice_log: " + e.getMessage());
+    /**
+     * Waits up to {@value #INVOICE_WAIT_SECONDS} s for the order's invoice job.
+     * The timeout is set on a copy, so it ends only this wait and not the shared job.
+     */
+    private static CompletableFuture<byte[]> awaitInvoice(Order order) {
+        return InvoiceJobQueue.submit(order).copy()
+            .orTimeout(INVOICE_WAIT_SECONDS, TimeUnit.SECONDS)
+            .exceptionally(e -> {
+                Throwable cause = (e instanceof CompletionException && e.getCause() != null) ? e.getCause() : e;
+                if (cause instanceof TimeoutException) {
+                    throw new IllegalStateException("Invoice is still being generated, please try again shortly.");
                 }
-            }
+                throw new IllegalStateException("Invoice generation failed.", cause);
+            });
+    }
 
-            // Save to temp PDF file and open
-            File tempFile = new File("Invoice_" + order.getId() + ".pdf");
+    /**
+     * Runs on a background thread: writes freshly generated invoice data (if
+     * any) into the file and tries to open it.
+     *
+     * @return the saved file if it could not be opened automatically, otherwise null
+     */
+    private static File writeAndOpenInvoice(File tempFile, byte[] data) throws Exception {
+        if (data != null) {
             try (FileOutputStream fos = new FileOutputStream(tempFile)) {
                 fos.write(data);
             }
-            savedPath = tempFile.getAbsolutePath();
-
-            boolean opened = false;
-            if (Desktop.isDesktopSupported()) {
-                try {
-                    Desktop.getDesktop().open(tempFile);
-                    opened = true;
-                } catch (Exception ex) {
-                    ex.printStackTrace();
-                }
-            }
+        }
 
-            if (!opened) {
-                // Fallback to platform specific open commands
-                try {
-                    String path = tempFile.getAbsolutePath();
-                    String os = System.getProperty("os.name").toLowerCase();
-                    if (os.contains("win")) {
-                        new ProcessBuilder("rundll32", "url.dll,FileProtocolHandler", path).start();
-                    } else if (os.contains("mac")) {
-                        new ProcessBuilder("open", path).start();
-                    } else {
-                        new ProcessBuilder("xdg-open", path).start();
-                    }
-                    opened = true;
-                } catch (Exception ex) {
-                    ex.printStackTrace();
-                }
+        boolean opened = false;
+        if (Desktop.isDesktopSupported()) {
+            try {
+                Desktop.getDesktop().open(tempFile);
+                opened = true;
+            } catch (Exception ex) {
+                ex.printStackTrace();
             }
+        }
 
-            if (!opened) {
-                showAlert(Alert.AlertType.INFORMATION, "Saved", "Invoice saved to: " + tempFile.getAbsolutePath());
+        if (!opened) {
+            // Fallback to platform specific open commands
+            try {
+                String path = tempFile.getAbsolutePath();
+                String os = System.getProperty("os.name").toLowerCase();
+                if (os.contains("win")) {
+                    new ProcessBuilder("rundll32", "url.dll,FileProtocolHandler", path).start();
+                } else if (os.contains("mac")) {
+                    new ProcessBuilder("open", path).start();
+                } else {
+                    new ProcessBuilder("xdg-open", path).start();
+                }
+                opened = true;
+            } catch (Exception ex) {
+                ex.printStackTrace();
             }
         }
+
+        return opened ? null : tempFile;
     }
-    catch (Exception e)
-    {
-        e.printStackTrace();
-        String msg = "Could not open invoice: " + (e.getMessage() != null ? e.getMessage() : "Unknown error");
-        if (savedPath != null) msg += "\nSaved to: " + savedPath;
-        showAlert(Alert.AlertType.ERROR, "Error", msg);
+
+    // Runs blocking work inside a CompletableFuture stage
+    private static <T> T unchecked(Callable<T> work) {
+        try {
+            return work.call();
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
     }
-}
 
 
     private void handleCancelOrder(Order order) {
         Alert alert = new Alert(Alert.AlertType.CONFIRMATION, "Cancel Order #" + order.getId() + "?", ButtonType.YES, ButtonType.NO);
         alert.showAndWait();
         if (alert.getResult() == ButtonType.YES) {
-            if (orderDAO.cancelOrder(order.getId())) {
-                loadOrders(); // Refresh table
-            }
+            FxAsync.deliver(AsyncDAO.cancelOrder(order.getId()), cancelled -> {
+                if (cancelled) loadOrders(); // Refresh table
+            }, e -> showAlert(Alert.AlertType.ERROR, "Error", "Could not cancel order: " + e.getMessage()));
         }
     }
 
     private void loadOrders() {
         if (currentUser != null) {
-            List<Order> myOrders = orderDAO.getOrdersByCustomerId(currentUser.getId());
-            ordersTable.setItems(FXCollections.observableArrayList(myOrders));
+            ordersRequest.submit(() -> AsyncDAO.getOrdersByCustomerId(currentUser.getId()),
+                myOrders -> ordersTable.setItems(FXCollections.observableArrayList(myOrders)),
+                e -> showAlert(Alert.AlertType.ERROR, "Error", "Could not load orders: " + e.getMessage()));
         }
     }
 
@@ -8,11 +8,18 @@ import javafx.geometry.Pos;
 import javafx.scene.control.*;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
+import models.ConversationSummary;
 import models.Message;
 import models.User;
+import javafx.application.Platform;
+import services.AsyncDAO;
+import services.MessageBus;
 import services.MessageDAO;
 import services.UserDAO;
+import utils.FxAsync;
 
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -43,9 +50,9 @@ public class OwnerChatController {
 
     /**
      * ListView displaying all customers who have conversations with the owner.
-     * Shows customer full name and username.
+     * Shows customer full name, username, last message time and unread count.
      */
-    @FXML private ListView<User> conversationsList;
+    @FXML private ListView<ConversationSummary> conversationsList;
     
     /**
      * Label showing the name of currently selected conversation partner.
@@ -68,6 +75,11 @@ public class OwnerChatController {
      */
     @FXML private Button sendButton;
 
+    /**
+     * Button above the bubbles that loads the previous page of history.
+     */
+    @FXML private Button loadEarlierButton;
+
     /**
      * Currently logged-in owner user.
      */
@@ -87,7 +99,14 @@ public class OwnerChatController {
      * Observable list of conversation partners (customers).
      * Automatically updates the conversationsList ListView.
      */
-    private ObservableList<User> partners = FXCollections.observableArrayList();
+    private ObservableList<ConversationSummary> partners = FXCollections.observableArrayList();
+
+    /**
+     * Pending partner list load; a reload supersedes it.
+     */
+    private final FxAsync.Latest partnersRequest = new FxAsync.Latest();
+
+    private static final DateTimeFormatter LAST_MESSAGE_FORMAT = DateTimeFormatter.ofPattern("dd.MM HH:mm");
     
     /**
      * User ID of currently selected conversation partner.
@@ -95,6 +114,24 @@ public class OwnerChatController {
      */
     private int selectedPartnerId = -1;
 
+    /**
+     * Cursors of the bubbles on screen: ids of the oldest and newest message
+     * shown (0 while the conversation is empty).
+     */
+    private int oldestMessageId = 0;
+    private int newestMessageId = 0;
+    private boolean conversationLoaded = false;
+    private boolean restoringSelection = false;
+
+    private final FxAsync.Latest conversationRequest = new FxAsync.Latest();
+    private final FxAsync.Latest historyRequest = new FxAsync.Latest();
+    private final FxAsync.Latest syncRequest = new FxAsync.Latest();
+
+    /**
+     * Push delivery of new messages to the owner; closed with the window.
+     */
+    private MessageBus.Subscription subscription;
+
     /**
      * Initializes the controller after FXML loading.
      * 
@@ -109,21 +146,29 @@ public class OwnerChatController {
         conversationsList.setItems(partners);
         
         // Custom cell factory to display user info
-        conversationsList.setCellFactory(lv -> new ListCell<User>() {
+        conversationsList.setCellFactory(lv -> new ListCell<ConversationSummary>() {
             @Override
-            protected void updateItem(User item, boolean empty) {
+            protected void updateItem(ConversationSummary item, boolean empty) {
                 super.updateItem(item, empty);
                 if (empty || item == null) {
                     setText(null);
                 } else {
-                    setText(item.getFullName() + " (" + item.getUsername() + ")");
+                    User u = item.getPartner();
+                    StringBuilder text = new StringBuilder(u.getFullName() + " (" + u.getUsername() + ")");
+                    if (item.getLastMessageAt() != null) {
+                        text.append("\n").append(item.getLastMessageAt().format(LAST_MESSAGE_FORMAT));
+                    }
+                    if (item.getUnreadCount() > 0) {
+                        text.append("  •  ").append(item.getUnreadCount()).append(" unread");
+                    }
+                    setText(text.toString());
                 }
             }
         });
 
         // Load conversation when a partner is selected
         conversationsList.getSelectionModel().selectedItemProperty().addListener((obs, oldV, newV) -> {
-            if (newV != null) loadConversation(newV.getId());
+            if (newV != null && !restoringSelection) loadConversation(newV.getPartner());
         });
     }
 
@@ -137,23 +182,51 @@ public class OwnerChatController {
     public void setUser(User user) {
         this.currentUser = user;
         loadPartners();
+
+        if (subscription != null) subscription.close();
+        if (user != null) {
+            subscription = MessageBus.subscribe(user.getId(), m -> Platform.runLater(() -> onMessage(m)));
+            FxAsync.onWindowHidden(messagesContainer, () -> subscription.close());
+        }
+    }
+
+    /**
+     * Bus callback (on the FX thread): appends to the open conversation, or
+     * refreshes the partner list so unread counts and ordering stay current.
+     */
+    private void onMessage(Message m) {
+        int partnerId = (m.getFromUserId() == currentUser.getId()) ? m.getToUserId() : m.getFromUserId();
+        if (partnerId == selectedPartnerId) {
+            syncNewMessages();
+            if (m.getToUserId() == currentUser.getId()) {
+                AsyncDAO.supply(() -> messageDAO.markConversationRead(currentUser.getId(), partnerId));
+            }
+        } else {
+            loadPartners();
+        }
     }
 
     /**
      * Loads all customers who have messaged the owner.
      * 
+     * <p>Partners, their last message time and unread counts come from a single
+     * query that runs in the background.
+     * 
      * <p>Special handling for Turkish characters:
      * If the sample customer "cust" has ASCII-only full name, updates it to
      * "Ahmet Müşteri" in the database.
      */
     private void loadPartners() {
-        partners.clear();
-        if (currentUser == null) return;
-        
-        List<Integer> partnerIds = messageDAO.getConversationPartnersForOwner(currentUser.getId());
-        for (Integer id : partnerIds) {
-            User u = userDAO.getUserById(id);
-            if (u != null) {
+        if (currentUser == null) {
+            partners.clear();
+            return;
+        }
+        int ownerId = currentUser.getId();
+
+        partnersRequest.submit(() -> AsyncDAO.supply(() -> {
+            List<ConversationSummary> summaries = messageDAO.getConversationSummariesForOwner(ownerId);
+            for (ConversationSummary s : summaries) {
+                User u = s.getPartner();
                 // Fix Turkish characters for sample customer if needed
                 if ("cust".equals(u.getUsername()) && 
                     (u.getFullName() == null || u.getFullName().matches("^[\\u0000-\\u007F]*$"))) {
@@ -162,40 +235,123 @@ public class OwnerChatController {
                         u.setFullName("Ahmet Müşteri");
                     }
                 }
-                partners.add(u);
             }
-        }
+            return summaries;
+        }), summaries -> {
+            // Keep the open conversation selected without reloading it
+            restoringSelection = true;
+            try {
+                partners.setAll(summaries);
+                for (ConversationSummary s : summaries) {
+                    if (s.getPartner().getId() == selectedPartnerId) {
+                        conversationsList.getSelectionModel().select(s);
+                        break;
+                    }
+                }
+            } finally {
+                restoringSelection = false;
+            }
+        }, null);
     }
 
     /**
-     * Loads the conversation history with a specific customer.
+     * Loads the latest page of the conversation with a specific customer.
      * 
-     * <p>Clears the messages container and displays all messages as bubbles.
+     * <p>Clears the messages container and displays the newest
+     * {@link MessageDAO#PAGE_SIZE} messages as bubbles; older ones are loaded
+     * on demand with "Load earlier messages".
      * Owner's messages appear on the right with purple/blue styling,
      * customer's messages appear on the left with white styling.
      * 
-     * @param partnerId The user ID of the customer to load conversation with
+     * @param partner The customer to load conversation with
      */
-    private void loadConversation(int partnerId) {
+    private void loadConversation(User partner) {
+        int ownerId = currentUser.getId();
+        int partnerId = partner.getId();
         selectedPartnerId = partnerId;
-        User partner = userDAO.getUserById(partnerId);
-        chatWithLabel.setText((partner != null) ? partner.getFullName() : "Conversation");
+        chatWithLabel.setText(partner.getFullName() != null ? partner.getFullName() : "Conversation");
         
-        // Clear previous messages
+        // Clear previous messages and forget the old conversation's cursors
         messagesContainer.getChildren().clear();
+        historyRequest.cancel();
+        syncRequest.cancel();
+        oldestMessageId = 0;
+        newestMessageId = 0;
+        conversationLoaded = false;
+        showLoadEarlier(false);
         
-        // Load and display all messages
-        List<Message> convo = messageDAO.getConversation(currentUser.getId(), partnerId);
-        for (Message m : convo) {
-            boolean isSent = (m.getFromUserId() == currentUser.getId());
-            addMessageBubble(m.getContent(), isSent);
+        conversationRequest.submit(() -> AsyncDAO.supply(() -> {
+            messageDAO.markConversationRead(ownerId, partnerId);
+            return messageDAO.getLatestMessages(ownerId, partnerId, MessageDAO.PAGE_SIZE);
+        }), page -> {
+            for (Message m : page) {
+                messagesContainer.getChildren().add(createMessageBubble(m));
+            }
+            if (!page.isEmpty()) {
+                oldestMessageId = page.get(0).getId();
+                newestMessageId = page.get(page.size() - 1).getId();
+            }
+            conversationLoaded = true;
+            showLoadEarlier(page.size() == MessageDAO.PAGE_SIZE);
+        }, null);
+    }
+
+    /**
+     * Prepends the previous page of history above the oldest bubble.
+     */
+    @FXML
+    private void handleLoadEarlier(ActionEvent event) {
+        if (!conversationLoaded || oldestMessageId == 0) return;
+        int ownerId = currentUser.getId();
+        int partnerId = selectedPartnerId;
+        int before = oldestMessageId;
+
+        historyRequest.submit(() -> AsyncDAO.supply(
+            () -> messageDAO.getMessagesBefore(ownerId, partnerId, before, MessageDAO.PAGE_SIZE)
+        ), page -> {
+            List<HBox> bubbles = new ArrayList<>();
+            for (Message m : page) {
+                bubbles.add(createMessageBubble(m));
+            }
+            messagesContainer.getChildren().addAll(0, bubbles);
+            if (!page.isEmpty()) oldestMessageId = page.get(0).getId();
+            showLoadEarlier(page.size() == MessageDAO.PAGE_SIZE);
+        }, null);
+    }
+
+    /**
+     * Appends only the messages newer than the last bubble on screen.
+     */
+    private void syncNewMessages() {
+        if (!conversationLoaded || selectedPartnerId == -1) return;
+        int ownerId = currentUser.getId();
+        int partnerId = selectedPartnerId;
+        int since = newestMessageId;
+
+        syncRequest.submit(() -> AsyncDAO.supply(
+            () -> messageDAO.getMessagesSince(ownerId, partnerId, since, MessageDAO.PAGE_SIZE)
+        ), this::appendMessages, null);
+    }
+
+    private void appendMessages(List<Message> newMessages) {
+        for (Message m : newMessages) {
+            if (m.getId() <= newestMessageId) continue; // already on screen
+            messagesContainer.getChildren().add(createMessageBubble(m));
+            newestMessageId = m.getId();
         }
+        if (newMessages.size() == MessageDAO.PAGE_SIZE) syncNewMessages(); // more are waiting
+    }
+
+    private void showLoadEarlier(boolean show) {
+        loadEarlierButton.setVisible(show);
+        loadEarlierButton.setManaged(show);
     }
 
     /**
      * Handles the Send button click or Enter key press.
      * 
-     * <p>Validates input, saves message to database, and displays it as a bubble.
+     * <p>Validates input and saves the message in the background; the message bus
+     * then appends every message newer than the last bubble (including this one).
      * Does nothing if:
      * <ul>
      *   <li>Message text is empty or only whitespace</li>
@@ -206,20 +362,38 @@ public class OwnerChatController {
      */
     @FXML
     private void handleSend(ActionEvent event) {
-    String text = messageField.getText();
-    
-    if (text == null || text.trim().isEmpty() || selectedPartnerId == -1) {
-        return;
+        String text = messageField.getText();
+        
+        if (text == null || text.trim().isEmpty() || selectedPartnerId == -1) {
+            return;
+        }
+
+        // The bus triggers the append once the message is stored
+        Message m = new Message(currentUser.getId(), selectedPartnerId, text.trim());
+        messageField.clear();
+        FxAsync.deliver(AsyncDAO.supply(() -> messageDAO.saveMessage(m)),
+            saved -> { if (!saved) restoreUnsent(m.getContent()); },
+            e -> restoreUnsent(m.getContent()));
+    }
+
+    private void showAlert(Alert.AlertType type, String title, String content) {
+        Alert alert = new Alert(type);
+        alert.setTitle(title);
+        alert.setHeaderText(null);
+        alert.setContentText(content);
+        alert.showAndWait();
     }
 
-    Message m = new Message(currentUser.getId(), selectedPartnerId, text.trim());
-    messageDAO.saveMessage(m);
-    addMessageBubble(text.trim(), true);
-    messageField.clear();
-}
+    // Puts an unsent message back into the input so it is not lost
+    private void restoreUnsent(String text) {
+        if (messageField.getText() == null || messageField.getText().isEmpty()) {
+            messageField.setText(text);
+        }
+        showAlert(Alert.AlertType.ERROR, "Error", "Your message could not be sent. Please try again.");
+    }
     
     /**
-     * Creates and adds a styled message bubble to the messages container.
+     * Creates a styled message bubble for the messages container.
      * 
      * <p>Styling:
      * <ul>
@@ -233,11 +407,14 @@ public class OwnerChatController {
      *   <li>{@code message-bubble-received} for customer messages</li>
      * </ul>
      * 
-     * @param text The message text to display
-     * @param isSent {@code true} if message is from owner (sent),
-     *               {@code false} if from customer (received)
+     * @param m The message to display; it is a sent bubble when it is from the owner
+     * @return the bubble node, ready to be added to the messages container
      */
-    private void addMessageBubble(String text, boolean isSent) {
+    private HBox createMessageBubble(Message m) {
+        String text = m.getContent();
+        boolean isSent = (m.getFromUserId() == currentUser.getId());
+
+
         // Create message label with text wrapping
         Label msgLabel = new Label(text);
         msgLabel.setWrapText(true);
@@ -249,7 +426,6 @@ public class OwnerChatController {
         msgBox.setAlignment(isSent ? Pos.CENTER_RIGHT : Pos.CENTER_LEFT);
         msgBox.setStyle("-fx-padding: 5;");
         
-        // Add to messages container
-        messagesContainer.getChildren().add(msgBox);
+        return msgBox;
     }
 }
\ No newline at end of file
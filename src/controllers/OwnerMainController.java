@@ -12,18 +12,27 @@ import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
 import javafx.scene.control.ButtonType;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.DatePicker;
 import javafx.scene.control.Label;
+import javafx.scene.control.ScrollBar;
 import javafx.scene.control.TableCell;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 import javafx.scene.control.TextArea;
 import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.application.Platform;
+import javafx.geometry.Orientation;
+import javafx.scene.Node;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
 import java.io.File;
 import java.io.PrintWriter;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -37,13 +46,17 @@ import javafx.scene.chart.PieChart;
 import javafx.scene.chart.XYChart;
 import javafx.scene.text.Font;
 
+import models.AnalyticsSnapshot;
+import models.CarrierStats;
 import models.Product;
 import models.Order;
 import models.User;
 import services.UserDAO;
-import services.CarrierRatingDAO;
+import services.AnalyticsService;
+import services.AsyncDAO;
+import services.CarrierStatsCache;
 import services.ProductDAO;
-import services.OrderDAO;
+import utils.FxAsync;
 
 
 /**
@@ -68,6 +81,9 @@ public class OwnerMainController {
     @FXML private TableColumn<OrderItem, String> orderDateColumn;
     @FXML private TableColumn<OrderItem, Double> orderTotalColumn;
     @FXML private TableColumn<OrderItem, String> orderStatusColumn;
+    @FXML private ComboBox<String> orderStatusFilter;
+    @FXML private DatePicker orderFromDate;
+    @FXML private DatePicker orderToDate;
     
     // --- 3. CARRIER TABLE ---
     @FXML private TableView<CarrierItem> carrierTable;
@@ -91,6 +107,26 @@ public class OwnerMainController {
     private ObservableList<Product> products;
     private ObservableList<OrderItem> orders;
     private ObservableList<CarrierItem> carriers;
+
+    // Table loads run in the background; a reload supersedes one still in flight
+    private final FxAsync.Latest productsRequest = new FxAsync.Latest();
+    private final FxAsync.Latest ordersRequest = new FxAsync.Latest();
+    private final FxAsync.Latest carriersRequest = new FxAsync.Latest();
+    private final FxAsync.Latest analyticsRequest = new FxAsync.Latest();
+
+    // Order table is filled page by page (keyset cursor) as the user scrolls
+    private static final int ORDER_PAGE_SIZE = 100;
+    private static final String ALL_STATUSES = "All";
+    private static final DateTimeFormatter ORDER_DATE_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm");
+    private LocalDateTime orderCursorTime;
+    private int orderCursorId;
+    private boolean ordersHasMore;
+    private boolean ordersLoading;
+    private boolean ordersFailed; // no more auto-loading until the next Apply / Clear
+    // Filters of the listing on screen, fixed when it was (re)started
+    private String appliedStatus;
+    private LocalDate appliedFrom;
+    private LocalDate appliedTo;
     
     public void setUser(User user) {
         this.currentUser = user;
@@ -143,6 +179,84 @@ public class OwnerMainController {
                 setText(empty || value == null ? null : String.format("%.2f ₺", value));
             }
         });
+
+        orderStatusFilter.setItems(FXCollections.observableArrayList(ALL_STATUSES, "CREATED", "ASSIGNED", "DELIVERED", "CANCELLED"));
+        orderStatusFilter.setValue(ALL_STATUSES);
+
+        // The scroll bar exists once the skin is created; fetch the next page near the bottom
+        orderTable.skinProperty().addListener((obs, oldSkin, newSkin) -> Platform.runLater(() -> {
+            for (Node node : orderTable.lookupAll(".scroll-bar")) {
+                if (node instanceof ScrollBar && ((ScrollBar) node).getOrientation() == Orientation.VERTICAL) {
+                    ScrollBar bar = (ScrollBar) node;
+                    bar.valueProperty().addListener((o, oldValue, value) -> {
+                        if (value.doubleValue() >= bar.getMax() * 0.9) loadNextOrderPage();
+                    });
+                }
+            }
+        }));
+    }
+
+    @FXML
+    private void handleApplyOrderFilter(ActionEvent event) {
+        reloadOrders();
+    }
+
+    @FXML
+    private void handleClearOrderFilter(ActionEvent event) {
+        orderStatusFilter.setValue(ALL_STATUSES);
+        orderFromDate.setValue(null);
+        orderToDate.setValue(null);
+        reloadOrders();
+    }
+
+    /**
+     * Starts the order listing again from the first page with the current
+     * filters; later pages keep using these filters.
+     */
+    private void reloadOrders() {
+        appliedStatus = ALL_STATUSES.equals(orderStatusFilter.getValue()) ? null : orderStatusFilter.getValue();
+        appliedFrom = orderFromDate.getValue();
+        appliedTo = orderToDate.getValue();
+        orders = FXCollections.observableArrayList();
+        orderTable.setItems(orders);
+        orderCursorTime = null;
+        orderCursorId = 0;
+        ordersHasMore = true;
+        ordersFailed = false;
+        ordersLoading = false; // a request still in flight is superseded below
+        loadNextOrderPage();
+    }
+
+    private void loadNextOrderPage() {
+        if (ordersLoading || !ordersHasMore || ordersFailed) return;
+        ordersLoading = true;
+
+        String status = appliedStatus;
+        LocalDate from = appliedFrom;
+        LocalDate to = appliedTo;
+        LocalDateTime afterTime = orderCursorTime;
+        int afterId = orderCursorId;
+
+        ordersRequest.submit(() -> AsyncDAO.getOrdersPage(status, from, to, afterTime, afterId, ORDER_PAGE_SIZE), page -> {
+            ordersLoading = false;
+            for (Order o : page.getOrders()) {
+                String dateStr = (o.getDeliveryTime() != null) ? o.getDeliveryTime().format(ORDER_DATE_FORMAT) : "N/A";
+                orders.add(new OrderItem(
+                    o.getId(),
+                    o.getCustomerName(),
+                    dateStr,
+                    o.getTotalCost(),
+                    o.getStatus()
+                ));
+            }
+            orderCursorTime = page.getLastRequestedTime();
+            orderCursorId = page.getLastId();
+            ordersHasMore = page.hasMore();
+        }, e -> {
+            ordersLoading = false;
+            ordersFailed = true;
+            showAlert(Alert.AlertType.ERROR, "Error", "Could not load orders: " + e.getMessage());
+        });
     }
 
     private void setupCarrierTable() {
@@ -162,47 +276,36 @@ public class OwnerMainController {
     
     private void loadSampleData() {
         // PRODUCTS
-        ProductDAO productDAO = new ProductDAO();
-        products = FXCollections.observableArrayList(productDAO.getAllProducts());
-        productTable.setItems(products);
-        
-        // ORDERS
-        OrderDAO orderDAO = new OrderDAO();
-        List<Order> dbOrders = orderDAO.getAllOrders();
-        orders = FXCollections.observableArrayList();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm");
-        
-        for (Order o : dbOrders) {
-            String dateStr = (o.getDeliveryTime() != null) ? o.getDeliveryTime().format(formatter) : "N/A";
-            orders.add(new OrderItem(
-                o.getId(),
-                o.getCustomerName(),
-                dateStr,
-                o.getTotalCost(),
-                o.getStatus()
-            ));
-        }
-        orderTable.setItems(orders);
+        productsRequest.submit(AsyncDAO::getAllProducts, dbProducts -> {
+            products = FXCollections.observableArrayList(dbProducts);
+            productTable.setItems(products);
+        }, e -> showAlert(Alert.AlertType.ERROR, "Error", "Could not load products: " + e.getMessage()));
         
-        // CARRIERS
-        UserDAO userDAO = new UserDAO();
-        CarrierRatingDAO ratingDAO = new CarrierRatingDAO();
-        List<User> dbCarriers = userDAO.getAllCarriers();
-        carriers = FXCollections.observableArrayList();
+        // ORDERS (first page; more are fetched while scrolling)
+        reloadOrders();
         
-        for (User u : dbCarriers) {
-            double avgRating = ratingDAO.getAverageRating(u.getId());
-            int deliveryCount = ratingDAO.getDeliveryCount(u.getId());
-            
-            carriers.add(new CarrierItem(
-                u.getId(),
-                u.getFullName(), 
-                u.getPhone(), 
-                avgRating, 
-                deliveryCount
-            ));
-        }
-        carrierTable.setItems(carriers);
+        // CARRIERS (rows are built on the background thread; ratings and
+        // delivery counts come from one cached aggregate instead of two queries per carrier)
+        carriersRequest.submit(() -> AsyncDAO.supply(() -> {
+            UserDAO userDAO = new UserDAO();
+            List<CarrierItem> rows = new ArrayList<>();
+
+            for (User u : userDAO.getAllCarriers()) {
+                CarrierStats stats = CarrierStatsCache.get(u.getId());
+
+                rows.add(new CarrierItem(
+                    u.getId(),
+                    u.getFullName(),
+                    u.getPhone(),
+                    stats.getAverageRating(),
+                    stats.getDeliveredCount()
+                ));
+            }
+            return rows;
+        }), rows -> {
+            carriers = FXCollections.observableArrayList(rows);
+            carrierTable.setItems(carriers);
+        }, e -> showAlert(Alert.AlertType.ERROR, "Error", "Could not load carriers: " + e.getMessage()));
     }
     
     @FXML
@@ -325,15 +428,18 @@ public class OwnerMainController {
     }
 
     /**
-     * Loads analytics charts in the Analytics tab.
+     * Loads analytics charts in the Analytics tab. The queries run concurrently
+     * in the background and all charts are filled in one FX pulse.
      */
     private void loadAnalyticsCharts() {
-        try {
-            OrderDAO dao = new OrderDAO();
+        analyticsRequest.submit(AnalyticsService::load, this::showAnalytics, Throwable::printStackTrace);
+    }
 
+    private void showAnalytics(AnalyticsSnapshot data) {
+        try {
             // Pie Chart: Top products by revenue
             if (revenueByProductPie != null) {
-                java.util.LinkedHashMap<String, Double> top = dao.getRevenueByProductTopN(6);
+                Map<String, Double> top = data.getRevenueByProduct();
                 ObservableList<PieChart.Data> pieData = FXCollections.observableArrayList();
                 for (java.util.Map.Entry<String, Double> e : top.entrySet()) {
                     pieData.add(new PieChart.Data(e.getKey(), e.getValue()));
@@ -346,7 +452,7 @@ public class OwnerMainController {
 
             // Bar Chart: Daily revenue for last 7 days
             if (dailyRevenueBar != null) {
-                java.util.LinkedHashMap<String, Double> daily = dao.getDailyRevenueLastNDays(7);
+                Map<String, Double> daily = data.getDailyRevenue7();
                 XYChart.Series<String, Number> series = new XYChart.Series<>();
                 series.setName("Revenue (₺)");
                 for (java.util.Map.Entry<String, Double> e : daily.entrySet()) {
@@ -362,7 +468,7 @@ public class OwnerMainController {
 
             // Top products by quantity (kg)
             if (topProductsBar != null) {
-                java.util.LinkedHashMap<String, Double> topQty = dao.getTopProductsByQuantityTopN(6);
+                Map<String, Double> topQty = data.getTopProductsByKg();
                 XYChart.Series<String, Number> qtySeries = new XYChart.Series<>();
                 qtySeries.setName("Kg sold");
                 for (java.util.Map.Entry<String, Double> e : topQty.entrySet()) {
@@ -387,7 +493,7 @@ public class OwnerMainController {
 
             // Revenue line chart: last 30 days
             if (revenueLineChart != null) {
-                java.util.LinkedHashMap<String, Double> last30 = dao.getDailyRevenueLastNDays(30);
+                Map<String, Double> last30 = data.getDailyRevenue30();
                 XYChart.Series<String, Number> revSeries = new XYChart.Series<>();
                 revSeries.setName("Revenue (₺)");
                 for (java.util.Map.Entry<String, Double> e : last30.entrySet()) {
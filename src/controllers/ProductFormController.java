@@ -10,9 +10,12 @@ import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import models.Product;
 import services.ProductDAO;
+import services.AsyncDAO;
+import services.ThumbnailService;
+import utils.DecodedImageCache;
+import utils.FxAsync;
 import utils.InputValidation;
 
-import java.io.ByteArrayInputStream;
 import java.io.File;
 
 /**
@@ -63,11 +66,15 @@ public class ProductFormController {
         stockField.setText(String.valueOf(product.getStock()));
         thresholdField.setText(String.valueOf(product.getThreshold()));
         
-           // If product already has an image, display it
-        if (product.getImage() != null && product.getImage().length > 0) {
-             ByteArrayInputStream bis = new ByteArrayInputStream(product.getImage());
-             productImageView.setImage(new Image(bis));
-        }
+           // If product already has an image, load it off the FX thread and display it
+        FxAsync.deliver(AsyncDAO.getProductImage(product.getId(), ThumbnailService.Rendition.MEDIUM), imageBytes -> {
+            Image preview = DecodedImageCache.get(product.getId(), imageBytes,
+                productImageView.getFitWidth(), productImageView.getFitHeight());
+            // Do not replace an image the user picked while this was loading
+            if (preview != null && selectedImageFile == null) {
+                 productImageView.setImage(preview);
+            }
+        }, e -> e.printStackTrace());
         
         saveButton.setText("Update Product");
     }
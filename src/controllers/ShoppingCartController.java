@@ -24,9 +24,12 @@ import javafx.stage.Stage;
 import models.Order;
 import models.OrderItem;
 import models.User;
+import services.AsyncDAO;
 import services.CartService;
 import services.OrderDAO;
+import services.PricingEngine;
 import services.CouponDAO; 
+import utils.FxAsync;
 
 import java.time.LocalDateTime;
 import java.time.LocalDate;
@@ -68,8 +71,9 @@ public class ShoppingCartController {
     @FXML private Label shippingNoteLabel; // Small note under shipping (e.g., "Free delivery")
 
     private User currentUser; 
+    private CartService.Cart cart; // resolved once in setUser, null until then
     private double currentCouponRate = 0.0; // Track the applied discount percentage
-    private double baseShipping = 20.0; // default shipping fee
+    private final PricingEngine.Quote cartQuote = new PricingEngine.Quote(); // reused on every refresh
     private boolean currentFreeShipping = false; // whether FREESHIP is applied
 
     @FXML
@@ -132,9 +136,23 @@ public class ShoppingCartController {
 
     public void setUser(User user) {
         this.currentUser = user;
+        // Resolving the cart may load the saved one, so it is done off the FX thread
+        FxAsync.deliver(AsyncDAO.getCart(user.getId()), loaded -> {
+            cart = loaded;
+            refreshCart();
+        }, e -> {
+            e.printStackTrace();
+            showAlert("Could not load your cart. Please try again.");
+        });
         displayUserCoupons();
     }
 
+    // Prices the cart (or an empty one) with the currently applied coupon
+    private PricingEngine.Quote quote(CartService.Cart cart) {
+        if (cart == null) return PricingEngine.summarize(0, currentCouponRate, currentFreeShipping, cartQuote);
+        return cart.quote(currentCouponRate, currentFreeShipping, cartQuote);
+    }
+
     // Map table columns to the OrderItem model
     private void setupTable() {
         productColumn.setCellValueFactory(new PropertyValueFactory<>("productName"));
@@ -166,28 +184,20 @@ public class ShoppingCartController {
     }
 
     private void refreshCart() {
-        // Fetch items from service
-        List<OrderItem> items = CartService.getCartItems();
+        // Fetch items from the customer's cart (empty until it is loaded)
+        List<OrderItem> items = (cart != null) ? cart.getItems() : List.of();
         ObservableList<OrderItem> observableItems = FXCollections.observableArrayList(items);
         cartTable.setItems(observableItems);
         
-        // Calculations
-        double subtotal = CartService.getTotal();
-        double vatRate = 0.18; // 18% VAT
-        double vat = subtotal * vatRate;
-        
-        // Shipping (free if FREESHIP coupon applied OR subtotal >= 150 TL)
-        boolean thresholdMet = subtotal >= 150.0;
-        double shipping = (currentFreeShipping || thresholdMet) ? 0.0 : baseShipping;
-        
-        // 1. Automatic Discount (5% off if subtotal > 200 TL)
-        double promoDiscount = (subtotal > 200) ? (subtotal * 0.05) : 0.0;
-        
-        // 2. Coupon Discount (Based on applied rate)
-        double couponDiscount = subtotal * (currentCouponRate / 100.0);
-        
-        double totalDiscount = promoDiscount + couponDiscount;
-        double finalTotal = subtotal + vat + shipping - totalDiscount;
+        // Calculations: VAT, shipping (free with FREESHIP or from 150 TL),
+        // automatic 5% discount above 200 TL and the applied coupon rate
+        PricingEngine.Quote q = quote(cart);
+        double subtotal = q.getSubtotal();
+        double vat = q.getVat();
+        boolean thresholdMet = q.isFreeShippingThresholdMet();
+        double shipping = q.getShipping();
+        double totalDiscount = q.getDiscount();
+        double finalTotal = q.getTotal();
 
         // Debug logs
         // refreshCart calculated totals
@@ -211,7 +221,7 @@ public class ShoppingCartController {
                 if (thresholdMet) {
                     earnCouponsLabel.setText("You're eligible for Free Delivery — great! 🎉");
                 } else {
-                    double remaining = 150.0 - subtotal;
+                    double remaining = q.getRemainingForFreeShipping();
                     earnCouponsLabel.setText(String.format("Spend %.2f ₺ more to earn Free Delivery (FREESHIP)", remaining));
                 }
             }
@@ -316,10 +326,7 @@ public class ShoppingCartController {
 
     private void displayAvailableCoupons() {
         CouponDAO couponDAO = new CouponDAO();
-        // Ensure our special coupons exist (in case DB wasn't seeded)
-        couponDAO.ensureCouponExists("FREESHIP", 0.0);
-        couponDAO.ensureCouponExists("LOYAL5", 5.0);
-
+        // Served from CouponRegistry, which also creates FREESHIP / LOYAL5 if the DB wasn't seeded
         List<String> available = couponDAO.getAllActiveCoupons();
         // available coupons prepared for tooltip
         if (available != null && !available.isEmpty()) {
@@ -338,8 +345,8 @@ public class ShoppingCartController {
     private void handleRemove(ActionEvent event) {
         OrderItem selected = cartTable.getSelectionModel().getSelectedItem();
         
-        if (selected != null) {
-            CartService.getCartItems().remove(selected);
+        if (selected != null && cart != null) {
+            cart.remove(selected.getProductId());
             refreshCart();
         } else {
             showAlert("Please select an item to remove.");
@@ -354,13 +361,22 @@ public class ShoppingCartController {
 
     @FXML
     private void handleCheckout(ActionEvent event) {
-        if (CartService.getCartItems().isEmpty()) {
+        if (currentUser == null) {
+            showAlert("User session error! Please log in again.");
+            return;
+        }
+
+        if (cart == null) {
+            showAlert("Your cart is still loading, please try again.");
+            return;
+        }
+        List<OrderItem> cartItems = cart.getItems();
+        if (cartItems.isEmpty()) {
             showAlert("Your cart is empty!");
             return;
         }
-        
-        if (currentUser == null) {
-            showAlert("User session error! Please log in again.");
+        if (!cart.holdStock()) {
+            showAlert("Some items in your cart are no longer available in the requested quantity.");
             return;
         }
 
@@ -373,9 +389,7 @@ public class ShoppingCartController {
             // failed to get prior order count
             ex.printStackTrace();
         }
-        // Parse final total from label
-        String totalStr = totalLabel.getText().replace(" ₺", "").replace(",", ".");
-        double finalTotal = Double.parseDouble(totalStr);
+        double finalTotal = quote(cart).getTotal();
         
         // Determine requested delivery LocalDateTime from picker/combo (Istanbul timezone)
         ZoneId ist = ZoneId.of("Europe/Istanbul");
@@ -410,10 +424,11 @@ public class ShoppingCartController {
 
         Order newOrder = new Order(0, currentUser.getId(), currentUser.getUsername(), 0, "CREATED", requested, finalTotal);
         
-        boolean success = orderDAO.createOrder(newOrder, CartService.getCartItems());
+        boolean success = orderDAO.createOrder(newOrder, cartItems);
         
         if (success) {
-            CartService.clearCart();
+            cart.clear();
+            CartService.flush(currentUser.getId());
             refreshCart();
 
             // Award SAVE20 coupon for large orders (>= 500 TL) but only to new users (no prior orders)
@@ -493,7 +508,7 @@ public class ShoppingCartController {
 
             ((Stage) checkoutButton.getScene().getWindow()).close(); 
         } else {
-            showAlert("Database error while creating order! ❌");
+            showAlert("Could not place the order! ❌\nSome items may no longer be in stock, or a database error occurred.");
         }
     }
 
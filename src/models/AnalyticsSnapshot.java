@@ -0,0 +1,29 @@
+package models;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Data behind the owner's analytics charts, loaded together in one go.
+ * Every map keeps the order of the query (top N descending, days ascending).
+ */
+public class AnalyticsSnapshot {
+    private final Map<String, Double> revenueByProduct;   // product name -> revenue
+    private final Map<String, Double> topProductsByKg;    // product name -> kg sold
+    private final Map<String, Double> dailyRevenue7;      // yyyy-MM-dd -> revenue
+    private final Map<String, Double> dailyRevenue30;     // yyyy-MM-dd -> revenue
+
+    public AnalyticsSnapshot(LinkedHashMap<String, Double> revenueByProduct, LinkedHashMap<String, Double> topProductsByKg,
+                             LinkedHashMap<String, Double> dailyRevenue7, LinkedHashMap<String, Double> dailyRevenue30) {
+        this.revenueByProduct = Collections.unmodifiableMap(revenueByProduct);
+        this.topProductsByKg = Collections.unmodifiableMap(topProductsByKg);
+        this.dailyRevenue7 = Collections.unmodifiableMap(dailyRevenue7);
+        this.dailyRevenue30 = Collections.unmodifiableMap(dailyRevenue30);
+    }
+
+    public Map<String, Double> getRevenueByProduct() { return revenueByProduct; }
+    public Map<String, Double> getTopProductsByKg() { return topProductsByKg; }
+    public Map<String, Double> getDailyRevenue7() { return dailyRevenue7; }
+    public Map<String, Double> getDailyRevenue30() { return dailyRevenue30; }
+}
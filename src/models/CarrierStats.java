@@ -0,0 +1,23 @@
+package models;
+
+/**
+ * Aggregated rating and delivery figures for one carrier.
+ */
+public class CarrierStats {
+    private final int carrierId;
+    private final double averageRating;   // 0.0 when the carrier has no ratings
+    private final int ratingCount;
+    private final int deliveredCount;
+
+    public CarrierStats(int carrierId, double averageRating, int ratingCount, int deliveredCount) {
+        this.carrierId = carrierId;
+        this.averageRating = averageRating;
+        this.ratingCount = ratingCount;
+        this.deliveredCount = deliveredCount;
+    }
+
+    public int getCarrierId() { return carrierId; }
+    public double getAverageRating() { return averageRating; }
+    public int getRatingCount() { return ratingCount; }
+    public int getDeliveredCount() { return deliveredCount; }
+}
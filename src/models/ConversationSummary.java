@@ -0,0 +1,23 @@
+package models;
+
+import java.time.LocalDateTime;
+
+/**
+ * One row of the owner's conversation list: the partner, the time of the
+ * latest message exchanged and how many of the partner's messages are unread.
+ */
+public class ConversationSummary {
+    private final User partner;
+    private final LocalDateTime lastMessageAt;
+    private final int unreadCount;
+
+    public ConversationSummary(User partner, LocalDateTime lastMessageAt, int unreadCount) {
+        this.partner = partner;
+        this.lastMessageAt = lastMessageAt;
+        this.unreadCount = unreadCount;
+    }
+
+    public User getPartner() { return partner; }
+    public LocalDateTime getLastMessageAt() { return lastMessageAt; }
+    public int getUnreadCount() { return unreadCount; }
+}
@@ -0,0 +1,23 @@
+package models;
+
+/**
+ * One row of couponinfo. Immutable; held by services.CouponRegistry.
+ */
+public class Coupon {
+    private final int id;
+    private final String code;
+    private final double discountRate; // percent, 0 for FREESHIP
+    private final boolean active;
+
+    public Coupon(int id, String code, double discountRate, boolean active) {
+        this.id = id;
+        this.code = code;
+        this.discountRate = discountRate;
+        this.active = active;
+    }
+
+    public int getId() { return id; }
+    public String getCode() { return code; }
+    public double getDiscountRate() { return discountRate; }
+    public boolean isActive() { return active; }
+}
@@ -0,0 +1,28 @@
+package models;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of an order listing plus the keyset cursor for the next page.
+ * Pages are ordered by requested delivery time (newest first), then id.
+ */
+public class OrderPage {
+    private final List<Order> orders;
+    private final LocalDateTime lastRequestedTime; // cursor: requested_delivery_time of the last row
+    private final int lastId;                      // cursor: id of the last row
+    private final boolean hasMore;
+
+    public OrderPage(List<Order> orders, LocalDateTime lastRequestedTime, int lastId, boolean hasMore) {
+        this.orders = Collections.unmodifiableList(orders);
+        this.lastRequestedTime = lastRequestedTime;
+        this.lastId = lastId;
+        this.hasMore = hasMore;
+    }
+
+    public List<Order> getOrders() { return orders; }
+    public LocalDateTime getLastRequestedTime() { return lastRequestedTime; }
+    public int getLastId() { return lastId; }
+    public boolean hasMore() { return hasMore; }
+}
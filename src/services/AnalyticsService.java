@@ -0,0 +1,56 @@
+package services;
+
+import models.AnalyticsSnapshot;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Loads everything the analytics tab shows with as few round trips as possible.
+ *
+ * The three independent aggregate queries run at the same time on the
+ * AsyncDAO pool, so each one gets its own pooled connection and the tab waits
+ * only as long as the slowest query. The 7-day revenue series is cut out of
+ * the 30-day result instead of being queried again.
+ *
+ * @author Group04
+ * @version 1.0
+ */
+public class AnalyticsService {
+
+    private static final int TOP_N = 6;
+    private static final int SHORT_DAYS = 7;
+    private static final int LONG_DAYS = 30;
+
+    private static final OrderDAO orderDAO = new OrderDAO();
+
+    /**
+     * Starts all chart queries concurrently.
+     *
+     * @return future completed with all datasets once every query has finished
+     */
+    public static CompletableFuture<AnalyticsSnapshot> load() {
+        CompletableFuture<LinkedHashMap<String, Double>> revenue = AsyncDAO.supply(() -> orderDAO.getRevenueByProductTopN(TOP_N));
+        CompletableFuture<LinkedHashMap<String, Double>> quantity = AsyncDAO.supply(() -> orderDAO.getTopProductsByQuantityTopN(TOP_N));
+        CompletableFuture<LinkedHashMap<String, Double>> daily = AsyncDAO.supply(() -> orderDAO.getDailyRevenueLastNDays(LONG_DAYS));
+
+        return CompletableFuture.allOf(revenue, quantity, daily).thenApply(done -> {
+            LinkedHashMap<String, Double> last30 = daily.join();
+            return new AnalyticsSnapshot(revenue.join(), quantity.join(), lastDays(last30, SHORT_DAYS), last30);
+        });
+    }
+
+    /**
+     * Same window as getDailyRevenueLastNDays(days): day >= today - days.
+     * Keys are ISO dates, so string order is date order.
+     */
+    static LinkedHashMap<String, Double> lastDays(Map<String, Double> daily, int days) {
+        String from = LocalDate.now().minusDays(days).toString();
+        LinkedHashMap<String, Double> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Double> e : daily.entrySet()) {
+            if (e.getKey().compareTo(from) >= 0) result.put(e.getKey(), e.getValue());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,158 @@
+package services;
+
+import models.Order;
+import models.OrderPage;
+import models.Product;
+import models.User;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * CompletableFuture based variants of the DAO calls used by the screens.
+ *
+ * All work runs on a small bounded executor of daemon threads, sized like the
+ * connection pool so queued calls wait here instead of blocking inside
+ * {@link DatabaseAdapter#getConnection()}. Controllers hand the returned
+ * futures to {@link utils.FxAsync}, which delivers results on the JavaFX
+ * application thread.
+ *
+ * A future that is cancelled before its task starts is skipped by the
+ * executor; a query that is already running finishes, but its result is
+ * dropped.
+ *
+ * @author Group04
+ * @version 1.0
+ */
+public class AsyncDAO {
+
+    private static final int QUEUE_CAPACITY = 256;
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    private static final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+        DatabaseAdapter.getPoolSize(), DatabaseAdapter.getPoolSize(),
+        30, TimeUnit.SECONDS,
+        new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+        r -> {
+            Thread t = new Thread(r, "db-async-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+    static {
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    private static final OrderDAO orderDAO = new OrderDAO();
+    private static final UserDAO userDAO = new UserDAO();
+
+    /**
+     * Runs any blocking database work on the async executor.
+     *
+     * @param work blocking call to run
+     * @return future completed with the call's result, or exceptionally when the
+     *         call throws or the queue is full
+     */
+    public static <T> CompletableFuture<T> supply(Supplier<T> work) {
+        try {
+            return CompletableFuture.supplyAsync(work, executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    // --- PRODUCTS ---
+
+    public static CompletableFuture<List<Product>> getAllProducts() {
+        return supply(ProductService::getAllProducts);
+    }
+
+    /**
+     * @return future with the image bytes (null if the product has no image)
+     */
+    public static CompletableFuture<byte[]> getProductImage(int productId, ThumbnailService.Rendition rendition) {
+        return supply(() -> ProductImageCache.getImage(productId, rendition));
+    }
+
+    // --- CART ---
+
+    /**
+     * Adds to a customer's cart off the FX thread; restoring the saved cart
+     * and reading stock for a product's first hold both query the database.
+     * Fails with IllegalArgumentException if the quantity cannot be held.
+     */
+    public static CompletableFuture<Double> addToCart(int userId, Product product, double quantity) {
+        return supply(() -> CartService.forUser(userId).add(product, quantity));
+    }
+
+    /**
+     * Resolves a customer's cart off the FX thread; the first call of a session
+     * loads the saved cart.
+     */
+    public static CompletableFuture<CartService.Cart> getCart(int userId) {
+        return supply(() -> CartService.forUser(userId));
+    }
+
+    /**
+     * Saves and drops a customer's cart off the FX thread (on logout).
+     */
+    public static CompletableFuture<Void> endCartSession(int userId) {
+        return supply(() -> {
+            CartService.endSession(userId);
+            return null;
+        });
+    }
+
+    // --- ORDERS ---
+
+    public static CompletableFuture<OrderPage> getOrdersPage(String status, LocalDate from, LocalDate to,
+                                                             LocalDateTime afterTime, int afterId, int limit) {
+        return supply(() -> {
+            OrderPage page = orderDAO.getOrdersPage(status, from, to, afterTime, afterId, limit);
+            if (page == null) throw new IllegalStateException("Orders could not be loaded from the database.");
+            return page;
+        });
+    }
+
+    public static CompletableFuture<List<Order>> getPendingOrders() {
+        return supply(orderDAO::getPendingOrders);
+    }
+
+    public static CompletableFuture<List<Order>> getOrdersByCarrierAndStatus(int carrierId, String status) {
+        return supply(() -> orderDAO.getOrdersByCarrierAndStatus(carrierId, status));
+    }
+
+    public static CompletableFuture<List<Order>> getOrdersByCustomerId(int customerId) {
+        return supply(() -> orderDAO.getOrdersByCustomerId(customerId));
+    }
+
+    public static CompletableFuture<Boolean> cancelOrder(int orderId) {
+        return supply(() -> orderDAO.cancelOrder(orderId));
+    }
+
+    public static CompletableFuture<Boolean> assignOrderToCarrier(int orderId, int carrierId) {
+        return supply(() -> orderDAO.assignOrderToCarrier(orderId, carrierId));
+    }
+
+    // --- USERS / CARRIERS ---
+
+    public static CompletableFuture<List<User>> getAllCarriers() {
+        return supply(userDAO::getAllCarriers);
+    }
+
+    /**
+     * @return executor queue summary for diagnostics
+     */
+    public static String describeStats() {
+        return String.format("AsyncDAO[active=%d, queued=%d, completed=%d]",
+            executor.getActiveCount(), executor.getQueue().size(), executor.getCompletedTaskCount());
+    }
+}
@@ -1,7 +1,10 @@
 package services;
 
 import models.CarrierRating;
+import models.CarrierStats;
 import java.sql.*;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Data Access Object for Carrier Ratings and Statistics.
@@ -35,13 +38,53 @@ public class CarrierRatingDAO {
             pstmt.setInt(4, rating.getScore());
             pstmt.setString(5, rating.getComment());
             
-            return pstmt.executeUpdate() > 0;
+            boolean added = pstmt.executeUpdate() > 0;
+            if (added) CarrierStatsCache.invalidate();
+            return added;
         } catch (SQLException e) {
             e.printStackTrace();
             return false;
         }
     }
 
+    /**
+     * Rating average, rating count and delivered count for every carrier,
+     * computed in one query (both sides are grouped once, then joined).
+     * Prefer {@link CarrierStatsCache#getAll()}, which caches this result.
+     * 
+     * @return stats keyed by carrier id; carriers without ratings or deliveries have zeros.
+     *         Null if the query failed
+     */
+    public Map<Integer, CarrierStats> getAllCarrierStats() {
+        String sql = "SELECT u.id, r.avg_score, COALESCE(r.rating_count, 0) AS rating_count, "
+                   + "COALESCE(d.delivered, 0) AS delivered "
+                   + "FROM userinfo u "
+                   + "LEFT JOIN (SELECT carrier_id, AVG(rating) AS avg_score, COUNT(*) AS rating_count "
+                   + "           FROM carrierrating GROUP BY carrier_id) r ON r.carrier_id = u.id "
+                   + "LEFT JOIN (SELECT carrier_id, COUNT(*) AS delivered "
+                   + "           FROM orderinfo WHERE status = 'DELIVERED' GROUP BY carrier_id) d ON d.carrier_id = u.id "
+                   + "WHERE u.role = 'carrier'";
+        Map<Integer, CarrierStats> stats = new HashMap<>();
+        
+        try (Connection conn = DatabaseAdapter.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            
+            while (rs.next()) {
+                int carrierId = rs.getInt("id");
+                double avg = rs.getDouble("avg_score");
+                if (rs.wasNull()) avg = 0.0;
+                stats.put(carrierId, new CarrierStats(carrierId, avg,
+                    rs.getInt("rating_count"), rs.getInt("delivered")));
+            }
+            
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+        return stats;
+    }
+
     /**
      * Calculates the average rating for a specific carrier.
      * 
@@ -0,0 +1,59 @@
+package services;
+
+import models.CarrierStats;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * In-memory snapshot of {@link CarrierRatingDAO#getAllCarrierStats()}.
+ *
+ * The owner dashboard reads carrier figures on every reload, but they only
+ * change when a rating is added or an order status changes. The snapshot is
+ * built by one aggregated query and kept until one of those writes
+ * invalidates it:
+ * - CarrierRatingDAO.addRating
+ * - OrderDAO.updateOrderStatus
+ *
+ * @author Group04
+ * @version 1.0
+ */
+public class CarrierStatsCache {
+
+    private static final CarrierRatingDAO ratingDAO = new CarrierRatingDAO();
+
+    // Guarded by the class lock; null means "not loaded"
+    private static Map<Integer, CarrierStats> stats = null;
+
+    /**
+     * Returns stats for all carriers, running the aggregate query only after an
+     * invalidation. A failed query is not cached, so the next call tries again.
+     *
+     * @return unmodifiable map keyed by carrier id
+     * @throws IllegalStateException if the stats could not be loaded
+     */
+    public static synchronized Map<Integer, CarrierStats> getAll() {
+        if (stats == null) {
+            Map<Integer, CarrierStats> loaded = ratingDAO.getAllCarrierStats();
+            if (loaded == null) throw new IllegalStateException("Carrier statistics could not be loaded from the database.");
+            stats = Collections.unmodifiableMap(loaded);
+        }
+        return stats;
+    }
+
+    /**
+     * @param carrierId carrier id
+     * @return stats for the carrier, or zeros if it has no ratings or deliveries
+     * @throws IllegalStateException if the stats could not be loaded
+     */
+    public static CarrierStats get(int carrierId) {
+        CarrierStats s = getAll().get(carrierId);
+        return (s != null) ? s : new CarrierStats(carrierId, 0.0, 0, 0);
+    }
+
+    /**
+     * Drops the snapshot; the next read rebuilds it from the database.
+     */
+    public static synchronized void invalidate() {
+        stats = null;
+    }
+}
@@ -3,84 +3,342 @@ package services;
 import models.OrderItem;
 import models.Product;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Shopping carts, one per logged-in customer.
+ *
+ * Each session gets its own {@link Cart} from {@link #forUser(int)}. A cart
+ * keys its lines by product id, so adding to an existing line is a hash
+ * lookup, and keeps a running total updated on every change instead of
+ * re-summing the lines. Carts are thread-safe, so many customers can be
+ * served from one process.
+ *
+ * Carts are saved to the cartinfo table by {@link CartStore} in the
+ * background and restored on the customer's next login. A cart is only
+ * saved once its saved lines have been loaded, so a failed load can never
+ * overwrite them; until then changes stay in memory and the load is retried
+ * on the next {@link #forUser(int)}. Quantities put into a
+ * cart are held for the customer by {@link StockReservations}, so two carts
+ * cannot both be promised the last kilograms of a product.
+ */
 public class CartService {
 
+    // One cart per user id for as long as the session lasts
+    private static final Map<Integer, Cart> carts = new ConcurrentHashMap<>();
+
     /**
-     * In-memory shopping cart used by the application.
-     * This is a simple static list representing the current cart contents.
+     * Returns the cart of a user, restoring the saved one on first use.
+     *
+     * @param userId logged-in customer
+     * @return the user's cart
      */
-    private static List<OrderItem> cartItems = new ArrayList<>();
+    public static Cart forUser(int userId) {
+        Cart cart = carts.get(userId);
+        if (cart != null && cart.isRestored()) return cart;
+
+        // Load outside the map and the cart so the query never blocks other sessions
+        List<CartStore.SavedLine> saved = CartStore.load(userId);
+        if (cart == null) {
+            Cart created = new Cart(userId);
+            cart = carts.putIfAbsent(userId, created);
+            if (cart == null) cart = created;
+        }
+        if (saved != null) cart.restore(saved);
+        return cart;
+    }
 
     /**
-     * Add a product to the cart.
-     * Pricing rule: quantity above the threshold is charged at double price.
+     * Saves pending changes of a user's cart now instead of waiting for the
+     * background writer (used at checkout).
+     *
+     * @param userId customer
+     * @return false if the cart could not be saved (it is retried later)
+     */
+    public static boolean flush(int userId) {
+        return CartStore.flush(userId);
+    }
+
+    /**
+     * Saves and drops the in-memory cart of a user (on logout).
+     *
+     * @param userId customer whose session ended
+     */
+    public static void endSession(int userId) {
+        CartStore.flush(userId);
+        carts.remove(userId);
+        StockReservations.releaseAll(userId);
+    }
+
+    /**
+     * Writes all unsaved carts. Called once when the application exits.
+     */
+    public static void shutdown() {
+        CartStore.shutdown();
+    }
+
+    /**
+     * Price of {@code quantity} kg of a product as a new cart line.
+     * Pricing rule: quantity that would take stock below the threshold is
+     * charged at double price (see {@link PricingEngine#tierGrams}).
+     *
      * @param product product to add
      * @param quantity quantity to add
-     * @return total price added for the given quantity
+     * @return total price for the given quantity
      */
-    public static double addToCart(Product product, double quantity) {
-        double stock = product.getStock();
-        double threshold = product.getThreshold();
-        if (quantity <= 0) throw new IllegalArgumentException("Quantity must be greater than zero.");
-        if (quantity > stock) throw new IllegalArgumentException("Requested quantity exceeds available stock.");
-        double basePrice = product.getPrice();
-
-        double normalQty = 0.0;
-        // If threshold is invalid (<= 0), treat as no threshold (no doubling)
-        if (threshold > 0 && stock > threshold) {
-            normalQty = Math.max(0.0, Math.min(quantity, stock - threshold));
-        } else {
-            // No threshold configured -> all quantity at normal price
-            normalQty = quantity;
-        }
-        double doubledQty = Math.max(0.0, quantity - normalQty);
-
-        double addedTotal = normalQty * basePrice + doubledQty * basePrice * 2.0;
-        double addedAvgPrice = addedTotal / quantity;
-
-        // If the product is already in the cart, increase quantity and recalculate average unit price
-        for (OrderItem item : cartItems) {
-            if (item.getProductId() == product.getId()) {
-                double existingTotal = item.getPricePerUnit() * item.getQuantity();
-                double newTotal = existingTotal + addedTotal;
-                double newQty = item.getQuantity() + quantity;
-                double newAvg = newTotal / newQty;
-                item.setQuantity(newQty);
-                item.setPricePerUnit(newAvg);
-                return addedTotal;
-            }
-        }
+    public static double priceFor(Product product, double quantity) {
+        validate(product, quantity);
+        return PricingEngine.fromMinor(PricingEngine.linePrice(PricingEngine.toMinor(product.getPrice()),
+            PricingEngine.tierGrams(product.getStock(), product.getThreshold()), PricingEngine.toGrams(quantity)));
+    }
 
-        // Otherwise add a new order item (store average price per unit)
-        cartItems.add(new OrderItem(product.getId(), product.getName(), quantity, addedAvgPrice));
-        return addedTotal;
+    private static void validate(Product product, double quantity) {
+        if (PricingEngine.toGrams(quantity) <= 0) throw new IllegalArgumentException("Quantity must be greater than zero.");
+        if (quantity > product.getStock()) throw new IllegalArgumentException("Requested quantity exceeds available stock.");
     }
 
     /**
-     * Returns the list of cart items.
+     * The cart of one customer. All methods are synchronized on the cart, so
+     * concurrent changes to the same cart are serialised and different carts
+     * never contend.
      */
-    public static List<OrderItem> getCartItems() {
-        return cartItems;
+    public static final class Cart {
+        private final int userId;
+        // product id -> line, in the order products were first added
+        private final LinkedHashMap<Integer, Line> lines = new LinkedHashMap<>();
+        private long totalMinor = 0;
+        // Reused by quote()
+        private final PricingEngine.Lines pricing = new PricingEngine.Lines();
+        // Until the saved lines are loaded, nothing is written; products changed
+        // meanwhile keep their session state when the saved lines are merged in
+        private boolean restored = false;
+        private boolean clearedBeforeRestore = false;
+        private final Set<Integer> changedBeforeRestore = new HashSet<>();
+
+        private Cart(int userId) {
+            this.userId = userId;
+        }
+
+        public int getUserId() {
+            return userId;
+        }
+
+        /**
+         * Adds a product to the cart, merging with an existing line of the same
+         * product. Every addition is priced on its own with the product's terms
+         * at that moment (see {@link CartService#priceFor}); the line costs the
+         * sum of its additions.
+         *
+         * @param product product to add
+         * @param quantity quantity to add
+         * @return price added to the cart by this quantity
+         * @throws IllegalArgumentException if the quantity is invalid or cannot be held
+         */
+        public synchronized double add(Product product, double quantity) {
+            validate(product, quantity);
+            if (!StockReservations.hold(userId, product.getId(), quantity, product.getStock())) {
+                throw new IllegalArgumentException(String.format("Only %.2f kg of %s is still available.",
+                    Math.max(0.0, StockReservations.getAvailable(product.getId())), product.getName()));
+            }
+
+            Line line = lines.get(product.getId());
+            if (line == null) {
+                line = new Line(new OrderItem(product.getId(), product.getName(), 0, 0));
+                lines.put(product.getId(), line);
+            }
+            long addedMinor = line.add(PricingEngine.toMinor(product.getPrice()),
+                                       PricingEngine.tierGrams(product.getStock(), product.getThreshold()),
+                                       PricingEngine.toGrams(quantity));
+            totalMinor += addedMinor;
+            changed(product.getId());
+            return PricingEngine.fromMinor(addedMinor);
+        }
+
+        /**
+         * Removes the line of a product.
+         *
+         * @param productId product to remove
+         * @return true if the product was in the cart
+         */
+        public synchronized boolean remove(int productId) {
+            Line removed = lines.remove(productId);
+            if (removed == null) return false;
+            StockReservations.release(userId, productId);
+            totalMinor -= removed.totalMinor;
+            changed(productId);
+            return true;
+        }
+
+        /**
+         * @return copies of the cart lines in insertion order (safe to hand to other threads)
+         */
+        public synchronized List<OrderItem> getItems() {
+            List<OrderItem> copy = new ArrayList<>(lines.size());
+            for (Line line : lines.values()) {
+                OrderItem item = line.item;
+                copy.add(new OrderItem(item.getProductId(), item.getProductName(), item.getQuantity(), item.getPricePerUnit()));
+            }
+            return copy;
+        }
+
+        /**
+         * @return total price of all lines, kept up to date incrementally
+         */
+        public synchronized double getTotal() {
+            return PricingEngine.fromMinor(totalMinor);
+        }
+
+        /**
+         * Prices the whole cart with the given coupon.
+         *
+         * @param couponRatePercent applied coupon rate in percent (0 if none)
+         * @param freeShipping true if a FREESHIP coupon is applied
+         * @param out receives the summary (reuse it between calls)
+         * @return {@code out}
+         */
+        public synchronized PricingEngine.Quote quote(double couponRatePercent, boolean freeShipping, PricingEngine.Quote out) {
+            pricing.clear();
+            for (Line line : lines.values()) {
+                for (Addition a : line.additions) {
+                    if (a.savedMinor >= 0) {
+                        pricing.addPriced(line.item.getProductId(), a.qtyGrams, a.savedMinor);
+                    } else {
+                        pricing.add(line.item.getProductId(), a.unitMinor, a.tierGrams, a.qtyGrams);
+                    }
+                }
+            }
+            return PricingEngine.price(pricing, couponRatePercent, freeShipping, out);
+        }
+
+        public synchronized boolean isEmpty() {
+            return lines.isEmpty();
+        }
+
+        public synchronized void clear() {
+            lines.clear();
+            totalMinor = 0;
+            StockReservations.releaseAll(userId);
+            if (restored) {
+                CartStore.markDirty(this);
+            } else {
+                clearedBeforeRestore = true;
+            }
+        }
+
+        /**
+         * Renews the stock holds of all lines before checkout, taking stock
+         * again for holds that expired or were never placed.
+         *
+         * @return false if some product no longer has enough stock for its line
+         */
+        public synchronized boolean holdStock() {
+            Map<Integer, Double> qtyByProduct = new LinkedHashMap<>();
+            for (Line line : lines.values()) {
+                qtyByProduct.put(line.item.getProductId(), line.item.getQuantity());
+            }
+            return StockReservations.ensureHeld(userId, qtyByProduct);
+        }
+
+        /**
+         * @return the lines with their exact totals, as written by {@link CartStore}
+         */
+        synchronized List<CartStore.SavedLine> savedLines() {
+            List<CartStore.SavedLine> copy = new ArrayList<>(lines.size());
+            for (Line line : lines.values()) {
+                OrderItem item = line.item;
+                copy.add(new CartStore.SavedLine(new OrderItem(item.getProductId(), item.getProductName(),
+                    item.getQuantity(), item.getPricePerUnit()), line.totalMinor));
+            }
+            return copy;
+        }
+
+        synchronized boolean isRestored() {
+            return restored;
+        }
+
+        private void changed(int productId) {
+            if (restored) {
+                CartStore.markDirty(this);
+            } else {
+                changedBeforeRestore.add(productId);
+            }
+        }
+
+        // Merges the saved lines into the cart and enables saving. Products
+        // changed in this session (or all, after a clear) keep their session
+        // state, which is then written back. A saved line becomes one addition
+        // at its saved total.
+        private synchronized void restore(List<CartStore.SavedLine> saved) {
+            if (restored) return;
+            for (CartStore.SavedLine savedLine : saved) {
+                OrderItem item = savedLine.item;
+                if (clearedBeforeRestore || changedBeforeRestore.contains(item.getProductId())) continue;
+                Line line = new Line(new OrderItem(item.getProductId(), item.getProductName(), 0, 0));
+                line.addSaved(PricingEngine.toGrams(item.getQuantity()), savedLine.totalMinor);
+                lines.put(item.getProductId(), line);
+                totalMinor += line.totalMinor;
+            }
+            restored = true;
+            if (clearedBeforeRestore || !changedBeforeRestore.isEmpty()) CartStore.markDirty(this);
+            changedBeforeRestore.clear();
+        }
     }
 
     /**
-     * Clears the cart contents.
+     * One cart line: the displayed item plus every addition that built it.
      */
-    public static void clearCart() {
-        cartItems.clear();
+    private static final class Line {
+        final OrderItem item;
+        final List<Addition> additions = new ArrayList<>(1);
+        long qtyGrams;
+        long totalMinor;
+
+        Line(OrderItem item) {
+            this.item = item;
+        }
+
+        // Prices one addition on its own and returns its price in kuruş
+        long add(long unitMinor, long tierGrams, long grams) {
+            long priceMinor = PricingEngine.linePrice(unitMinor, tierGrams, grams);
+            additions.add(new Addition(unitMinor, tierGrams, grams, -1));
+            return added(grams, priceMinor);
+        }
+
+        // Adds a restored quantity at the price it was saved with
+        void addSaved(long grams, long priceMinor) {
+            additions.add(new Addition(0, PricingEngine.NO_TIER, grams, priceMinor));
+            added(grams, priceMinor);
+        }
+
+        private long added(long grams, long priceMinor) {
+            qtyGrams += grams;
+            totalMinor += priceMinor;
+            item.setQuantity(qtyGrams / 1000.0);
+            item.setPricePerUnit(PricingEngine.fromMinor(totalMinor) / item.getQuantity());
+            return priceMinor;
+        }
     }
 
     /**
-     * Calculates the total price of items in the cart.
-     * @return total amount
+     * Quantity added to a line in one step, with the terms it was priced with.
+     * A restored line has no terms, only the total it was saved with.
      */
-    public static double getTotal() {
-        double total = 0;
-        for (OrderItem item : cartItems) {
-            total += item.getTotalPrice();
+    private static final class Addition {
+        final long unitMinor;
+        final long tierGrams;
+        final long qtyGrams;
+        final long savedMinor; // saved total of a restored line, -1 otherwise
+
+        Addition(long unitMinor, long tierGrams, long qtyGrams, long savedMinor) {
+            this.unitMinor = unitMinor;
+            this.tierGrams = tierGrams;
+            this.qtyGrams = qtyGrams;
+            this.savedMinor = savedMinor;
         }
-        return total;
     }
-}
\ No newline at end of file
+}
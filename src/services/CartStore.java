@@ -0,0 +1,251 @@
+package services;
+
+import models.OrderItem;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind persistence of shopping carts in the cartinfo table.
+ *
+ * Cart changes only mark the cart dirty. A background thread writes all dirty
+ * carts every {@value #FLUSH_INTERVAL_MS} ms in one transaction: a batched
+ * delete of their old rows and a batched insert of their current lines, which
+ * the driver rewrites into multi-row statements. However many times a
+ * quantity changes in between, a cart costs one write per interval.
+ * Checkout and logout flush their cart right away.
+ *
+ * Flushes are serialised, so an older snapshot of a cart can never overwrite
+ * a newer one. Lines of products deleted in the meantime are skipped. If the
+ * database is unavailable, a failed flush puts its carts back on the dirty
+ * list; if it rejects the data, the carts are written one by one and only a
+ * cart that still fails is dropped, so one bad cart never blocks the others.
+ *
+ * @author Group04
+ * @version 1.0
+ */
+final class CartStore {
+
+    static final long FLUSH_INTERVAL_MS = 250;
+
+    private static final String LOAD_SQL =
+        "SELECT c.product_id, p.name, c.amount_kg, c.unit_price, c.line_total_minor FROM cartinfo c " +
+        "JOIN productinfo p ON p.id = c.product_id " +
+        "WHERE c.user_id = ? AND p.is_active = 1 ORDER BY c.line_no";
+    private static final String DELETE_SQL = "DELETE FROM cartinfo WHERE user_id = ?";
+    // Inserts nothing for a product that was deleted while it sat in a cart
+    private static final String INSERT_SQL =
+        "INSERT INTO cartinfo (user_id, product_id, line_no, amount_kg, unit_price, line_total_minor) " +
+        "SELECT ?, id, ?, ?, ?, ? FROM productinfo WHERE id = ?";
+
+    // Carts changed since their last write, by user id
+    private static final Map<Integer, CartService.Cart> dirty = new ConcurrentHashMap<>();
+
+    private static final Object flushLock = new Object();
+
+    private static final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "cart-flusher");
+        t.setDaemon(true);
+        return t;
+    });
+
+    static {
+        flusher.scheduleWithFixedDelay(CartStore::flushAll, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private CartStore() { }
+
+    /**
+     * Queues a cart for the next write.
+     */
+    static void markDirty(CartService.Cart cart) {
+        dirty.put(cart.getUserId(), cart);
+    }
+
+    /**
+     * @param userId customer
+     * @return saved cart lines in the order they were added (lines of products
+     *         that were deactivated since are dropped), or null if the query failed
+     */
+    static List<SavedLine> load(int userId) {
+        List<SavedLine> lines = new ArrayList<>();
+        try (Connection conn = DatabaseAdapter.getConnection()) {
+            if (conn == null) return null;
+            try (PreparedStatement pstmt = conn.prepareStatement(LOAD_SQL)) {
+                pstmt.setInt(1, userId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        OrderItem item = new OrderItem(rs.getInt("product_id"), rs.getString("name"),
+                                                       rs.getDouble("amount_kg"), rs.getDouble("unit_price"));
+                        lines.add(new SavedLine(item, rs.getLong("line_total_minor")));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+        return lines;
+    }
+
+    /**
+     * Writes the cart of one user now if it has unsaved changes.
+     *
+     * @return false if the write failed (see {@link #write})
+     */
+    static boolean flush(int userId) {
+        synchronized (flushLock) {
+            CartService.Cart cart = dirty.remove(userId);
+            if (cart == null) return true;
+            Map<Integer, CartService.Cart> batch = new LinkedHashMap<>();
+            batch.put(userId, cart);
+            return write(batch);
+        }
+    }
+
+    /**
+     * Writes every cart with unsaved changes.
+     *
+     * @return false if some cart could not be written (see {@link #write})
+     */
+    static boolean flushAll() {
+        synchronized (flushLock) {
+            if (dirty.isEmpty()) return true;
+            Map<Integer, CartService.Cart> batch = new LinkedHashMap<>();
+            for (Integer userId : new ArrayList<>(dirty.keySet())) {
+                CartService.Cart cart = dirty.remove(userId);
+                if (cart != null) batch.put(userId, cart);
+            }
+            return write(batch);
+        }
+    }
+
+    /**
+     * Stops the background writer and writes what is still pending.
+     */
+    static void shutdown() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(FLUSH_INTERVAL_MS * 4, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!flushAll()) {
+            System.err.println("Cart store: " + dirty.size() + " cart(s) not saved at shutdown.");
+        }
+    }
+
+    // Writes a batch in one transaction. If the database rejects the data (e.g.
+    // the customer was deleted), the carts are written one by one and only the
+    // ones that still fail are dropped; any other failure queues them again.
+    // Carts are removed from the dirty map before their lines are copied, so a
+    // change racing with the copy marks the cart dirty again for the next round.
+    private static boolean write(Map<Integer, CartService.Cart> batch) {
+        try {
+            replace(batch.values());
+            return true;
+        } catch (SQLException e) {
+            if (!isRejected(e)) {
+                System.err.println("Warning: Failed to save " + batch.size() + " cart(s): " + e.getMessage());
+                requeue(batch.values());
+                return false;
+            }
+        }
+
+        boolean saved = true;
+        for (CartService.Cart cart : batch.values()) {
+            try {
+                replace(List.of(cart));
+            } catch (SQLException e) {
+                saved = false;
+                if (isRejected(e)) {
+                    System.err.println("Warning: Cart of user #" + cart.getUserId() + " was rejected and not saved: " + e.getMessage());
+                } else {
+                    requeue(List.of(cart));
+                }
+            }
+        }
+        return saved;
+    }
+
+    // Replaces the saved rows of the given carts in one transaction
+    private static void replace(Collection<CartService.Cart> carts) throws SQLException {
+        Connection conn = null;
+        try {
+            conn = DatabaseAdapter.getConnection();
+            if (conn == null) throw new SQLException("No database connection.");
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement delete = conn.prepareStatement(DELETE_SQL);
+                 PreparedStatement insert = conn.prepareStatement(INSERT_SQL)) {
+                int lines = 0;
+                for (CartService.Cart cart : carts) {
+                    delete.setInt(1, cart.getUserId());
+                    delete.addBatch();
+
+                    int lineNo = 0;
+                    for (SavedLine line : cart.savedLines()) {
+                        insert.setInt(1, cart.getUserId());
+                        insert.setInt(2, lineNo++);
+                        insert.setDouble(3, line.item.getQuantity());
+                        insert.setDouble(4, line.item.getPricePerUnit());
+                        insert.setLong(5, line.totalMinor);
+                        insert.setInt(6, line.item.getProductId());
+                        insert.addBatch();
+                        lines++;
+                    }
+                }
+                delete.executeBatch();
+                if (lines > 0) insert.executeBatch();
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            try { if (conn != null) conn.rollback(); } catch (SQLException ex) { ex.printStackTrace(); }
+            throw e;
+        } finally {
+            try { if (conn != null) { conn.setAutoCommit(true); conn.close(); } } catch (SQLException e) {}
+        }
+    }
+
+    /**
+     * One saved cart line: the item as displayed plus its exact price in kuruş,
+     * so a restored line costs what it cost before the logout.
+     */
+    static final class SavedLine {
+        final OrderItem item;
+        final long totalMinor;
+
+        SavedLine(OrderItem item, long totalMinor) {
+            this.item = item;
+            this.totalMinor = totalMinor;
+        }
+    }
+
+    private static void requeue(Collection<CartService.Cart> carts) {
+        for (CartService.Cart cart : carts) {
+            dirty.putIfAbsent(cart.getUserId(), cart);
+        }
+    }
+
+    // True if the database refused the data itself (constraint or data error, SQLSTATE 23xxx / 22xxx),
+    // so writing the same cart again cannot succeed
+    private static boolean isRejected(SQLException e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLException) {
+                String state = ((SQLException) t).getSQLState();
+                if (state != null && (state.startsWith("23") || state.startsWith("22"))) return true;
+            }
+        }
+        return false;
+    }
+}
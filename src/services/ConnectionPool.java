@@ -0,0 +1,367 @@
+package services;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded JDBC connection pool used by {@link DatabaseAdapter}.
+ *
+ * Connections handed out are lightweight proxies: calling close() on them
+ * returns the physical connection to the pool instead of closing it, so the
+ * existing try-with-resources blocks in the DAOs keep working unchanged.
+ *
+ * - At most maxSize physical connections exist at any time
+ * - Idle connections are validated before reuse when they sat idle too long
+ * - A background evictor closes connections that are idle or too old
+ * - Callers wait at most acquireTimeoutMs for a free connection
+ * - Each physical connection keeps an LRU {@link StatementCache} of prepared statements
+ *
+ * @author Group04
+ * @version 1.0
+ */
+public class ConnectionPool {
+
+    private final String url;
+    private final String user;
+    private final String pass;
+    private final int maxSize;
+    private final long acquireTimeoutMs;
+    private final long validationIntervalMs;
+    private final long idleTimeoutMs;
+    private final long maxLifetimeMs;
+    private final int statementCacheSize;
+
+    // One permit per connection that may be leased; bounds the pool size
+    private final Semaphore permits;
+    // Most recently returned connection is at the head (LIFO keeps the hot set small)
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final ScheduledExecutorService evictor;
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger opened = new AtomicInteger();
+    private final AtomicLong acquireCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong evictedCount = new AtomicLong();
+
+    private volatile boolean shutdown = false;
+
+    public ConnectionPool(String url, String user, String pass, int maxSize,
+                          long acquireTimeoutMs, long validationIntervalMs,
+                          long idleTimeoutMs, long maxLifetimeMs, int statementCacheSize) {
+        if (maxSize <= 0) throw new IllegalArgumentException("Pool size must be greater than zero.");
+        this.url = url;
+        this.user = user;
+        this.pass = pass;
+        this.maxSize = maxSize;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.validationIntervalMs = validationIntervalMs;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.maxLifetimeMs = maxLifetimeMs;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000L, Math.min(idleTimeoutMs, validationIntervalMs));
+        evictor.scheduleWithFixedDelay(this::evictStale, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrow a connection from the pool, opening a new one if none is idle.
+     * The returned connection must be closed by the caller to give it back.
+     *
+     * @return pooled connection proxy
+     * @throws SQLTimeoutException if no connection became free within the timeout
+     * @throws SQLException if the pool is shut down or the driver fails
+     */
+    public Connection getConnection() throws SQLException {
+        if (shutdown) throw new SQLException("Connection pool is shut down.");
+
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection.", e);
+        }
+        recordWait(System.nanoTime() - start);
+
+        if (!acquired) {
+            timeoutCount.incrementAndGet();
+            throw new SQLTimeoutException("Timed out after " + acquireTimeoutMs
+                + " ms waiting for a database connection (pool size " + maxSize + ").");
+        }
+
+        try {
+            if (shutdown) throw new SQLException("Connection pool is shut down.");
+            PooledConnection pc;
+            while ((pc = idle.pollFirst()) != null) {
+                if (isUsable(pc)) break;
+                discard(pc);
+            }
+            if (pc == null) pc = open();
+            active.incrementAndGet();
+            return pc.lease();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Close all idle connections and refuse further requests.
+     * Connections still leased are closed when their borrower returns them.
+     */
+    public void shutdown() {
+        shutdown = true;
+        evictor.shutdownNow();
+        PooledConnection pc;
+        while ((pc = idle.pollFirst()) != null) {
+            discard(pc);
+        }
+    }
+
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    /**
+     * @return a snapshot of the pool counters (active, idle, waits, timeouts)
+     */
+    public Stats getStats() {
+        return new Stats(maxSize, active.get(), idle.size(), opened.get(),
+            acquireCount.get(), totalWaitNanos.get(), maxWaitNanos.get(),
+            timeoutCount.get(), evictedCount.get());
+    }
+
+    // --- INTERNALS ---
+
+    private PooledConnection open() throws SQLException {
+        Connection physical = DriverManager.getConnection(url, user, pass);
+        opened.incrementAndGet();
+        return new PooledConnection(physical);
+    }
+
+    private boolean isUsable(PooledConnection pc) {
+        long now = System.currentTimeMillis();
+        if (now - pc.createdAt > maxLifetimeMs) return false;
+        try {
+            if (pc.physical.isClosed()) return false;
+            // Only ping the server for connections that sat idle long enough to have gone stale
+            if (now - pc.lastReturnedAt > validationIntervalMs) {
+                return pc.physical.isValid(2);
+            }
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void evictStale() {
+        long now = System.currentTimeMillis();
+        for (PooledConnection pc : idle.toArray(new PooledConnection[0])) {
+            boolean stale = now - pc.lastReturnedAt > idleTimeoutMs
+                || now - pc.createdAt > maxLifetimeMs;
+            // remove() fails if a borrower took it meanwhile; only the winner closes it
+            if (stale && idle.remove(pc)) {
+                evictedCount.incrementAndGet();
+                discard(pc);
+            }
+        }
+    }
+
+    private void release(PooledConnection pc, List<Statement> leftovers) {
+        boolean reusable = !shutdown;
+        try {
+            for (Statement st : leftovers) {
+                try { if (!st.isClosed()) st.close(); } catch (SQLException ignore) { }
+            }
+            if (pc.physical.isClosed()) {
+                reusable = false;
+            } else if (!pc.physical.getAutoCommit()) {
+                // Never hand out a connection with a half-finished transaction
+                pc.physical.rollback();
+                pc.physical.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            reusable = false;
+        }
+
+        active.decrementAndGet();
+        if (reusable) {
+            pc.lastReturnedAt = System.currentTimeMillis();
+            idle.offerFirst(pc);
+        } else {
+            discard(pc);
+        }
+        permits.release();
+    }
+
+    private void discard(PooledConnection pc) {
+        if (pc.statementCache != null) pc.statementCache.closeAll();
+        try { pc.physical.close(); } catch (SQLException ignore) { }
+        opened.decrementAndGet();
+    }
+
+    private void recordWait(long nanos) {
+        acquireCount.incrementAndGet();
+        totalWaitNanos.addAndGet(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * A physical connection owned by the pool.
+     */
+    private final class PooledConnection {
+        final Connection physical;
+        final StatementCache statementCache;
+        final long createdAt = System.currentTimeMillis();
+        volatile long lastReturnedAt = createdAt;
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.statementCache = (statementCacheSize > 0) ? new StatementCache(physical, statementCacheSize) : null;
+        }
+
+        Connection lease() {
+            return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                new Lease(this));
+        }
+    }
+
+    /**
+     * Invocation handler for one borrow of a pooled connection.
+     * close() hands the connection back; statements left open by the borrower
+     * are closed at that point so they do not pile up on the physical connection.
+     */
+    private final class Lease implements InvocationHandler {
+        private final PooledConnection pc;
+        private final List<Statement> statements = new ArrayList<>();
+        private boolean closed = false;
+
+        Lease(PooledConnection pc) {
+            this.pc = pc;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        release(pc, statements);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || pc.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + pc.physical + "]";
+                default:
+                    break;
+            }
+            if (closed) throw new SQLException("Connection is closed.");
+
+            Object result;
+            try {
+                if (isCacheablePrepare(method, args)) {
+                    Integer keys = (args.length == 2) ? (Integer) args[1] : null;
+                    result = pc.statementCache.prepare((String) args[0], keys);
+                } else {
+                    result = method.invoke(pc.physical, args);
+                }
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (result instanceof Statement) {
+                statements.add((Statement) result);
+            }
+            return result;
+        }
+
+        // prepareStatement(sql) and prepareStatement(sql, autoGeneratedKeys) go through the cache
+        private boolean isCacheablePrepare(Method method, Object[] args) {
+            if (pc.statementCache == null || !"prepareStatement".equals(method.getName())) return false;
+            Class<?>[] types = method.getParameterTypes();
+            return types.length == 1 || (types.length == 2 && types[1] == int.class);
+        }
+    }
+
+    /**
+     * Immutable snapshot of pool counters, used to size the pool.
+     */
+    public static final class Stats {
+        private final int maxSize;
+        private final int active;
+        private final int idle;
+        private final int open;
+        private final long acquireCount;
+        private final long totalWaitNanos;
+        private final long maxWaitNanos;
+        private final long timeouts;
+        private final long evicted;
+
+        Stats(int maxSize, int active, int idle, int open, long acquireCount,
+              long totalWaitNanos, long maxWaitNanos, long timeouts, long evicted) {
+            this.maxSize = maxSize;
+            this.active = active;
+            this.idle = idle;
+            this.open = open;
+            this.acquireCount = acquireCount;
+            this.totalWaitNanos = totalWaitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+            this.timeouts = timeouts;
+            this.evicted = evicted;
+        }
+
+        public int getMaxSize() { return maxSize; }
+        public int getActive() { return active; }
+        public int getIdle() { return idle; }
+        public int getOpen() { return open; }
+        public long getAcquireCount() { return acquireCount; }
+        public long getTimeouts() { return timeouts; }
+        public long getEvicted() { return evicted; }
+
+        public double getAverageWaitMillis() {
+            return acquireCount == 0 ? 0.0 : totalWaitNanos / 1_000_000.0 / acquireCount;
+        }
+
+        public double getMaxWaitMillis() {
+            return maxWaitNanos / 1_000_000.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Pool[max=%d, active=%d, idle=%d, open=%d, acquired=%d, avgWait=%.2fms, maxWait=%.2fms, timeouts=%d, evicted=%d]",
+                maxSize, active, idle, open, acquireCount, getAverageWaitMillis(), getMaxWaitMillis(), timeouts, evicted);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package services;
 
+import models.Coupon;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
@@ -7,6 +8,8 @@ import java.util.List;
 /**
  * Data Access Object for coupon management.
  * Provides operations to validate, create and list coupons.
+ * Code lookups are answered by {@link CouponRegistry} from memory; only
+ * writes and per-user assignments reach the database.
  */
 public class CouponDAO {
 
@@ -15,21 +18,7 @@ public class CouponDAO {
      * Returns 0.0 if invalid or inactive.
      */
     public double getDiscountRate(String code) {
-        String sql = "SELECT discount_rate FROM couponinfo WHERE UPPER(code) = UPPER(?) AND is_active = 1";
-        
-        try (Connection conn = DatabaseAdapter.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setString(1, code);
-            ResultSet rs = pstmt.executeQuery();
-            
-            if (rs.next()) {
-                return rs.getDouble("discount_rate");
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return 0.0;
+        return CouponRegistry.getDiscountRate(code);
     }
 
     /**
@@ -39,33 +28,48 @@ public class CouponDAO {
         String sql = "INSERT INTO couponinfo (code, discount_rate) VALUES (?, ?)";
         try (Connection conn = DatabaseAdapter.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, code.toUpperCase());
+            pstmt.setString(1, CouponRegistry.normalize(code));
             pstmt.setDouble(2, rate);
             return pstmt.executeUpdate() > 0;
         } catch (SQLException e) {
             e.printStackTrace();
             return false;
+        } finally {
+            CouponRegistry.invalidate();
         }
     }
 
     /**
-     * Fetches all active coupons from the database.
-     * Used to show customers what codes are available.
+     * Reads every coupon (active or not). Used by {@link CouponRegistry}.
+     *
+     * @return all coupons in id order, or null if the query failed
      */
-    public List<String> getAllActiveCoupons() {
-        List<String> coupons = new ArrayList<>();
-        String sql = "SELECT code, discount_rate FROM couponinfo WHERE is_active = 1";
-        
+    List<Coupon> loadAll() {
+        String sql = "SELECT id, code, discount_rate, is_active FROM couponinfo ORDER BY id";
+        List<Coupon> coupons = new ArrayList<>();
         try (Connection conn = DatabaseAdapter.getConnection();
-            Statement stmt = conn.createStatement();
-            ResultSet rs = stmt.executeQuery(sql)) {
-            
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
             while (rs.next()) {
-                // Format: CODE (%Rate OFF)
-                coupons.add(rs.getString("code") + " (%" + rs.getDouble("discount_rate") + " OFF)");
+                coupons.add(new Coupon(rs.getInt("id"), rs.getString("code"),
+                                       rs.getDouble("discount_rate"), rs.getBoolean("is_active")));
             }
+            return coupons;
         } catch (SQLException e) {
             e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Fetches all active coupons from the database.
+     * Used to show customers what codes are available.
+     */
+    public List<String> getAllActiveCoupons() {
+        List<String> coupons = new ArrayList<>();
+        for (Coupon c : CouponRegistry.getActive()) {
+            // Format: CODE (%Rate OFF)
+            coupons.add(c.getCode() + " (%" + c.getDiscountRate() + " OFF)");
         }
         return coupons;
     }
@@ -93,34 +97,34 @@ public class CouponDAO {
      * Ensures a coupon with the given code exists. Returns the coupon id (existing or newly created).
      */
     public int ensureCouponExists(String code, double rate) {
-        String select = "SELECT id FROM couponinfo WHERE UPPER(code) = UPPER(?) LIMIT 1";
-        try (Connection conn = DatabaseAdapter.getConnection();
-             PreparedStatement ps = conn.prepareStatement(select)) {
-            ps.setString(1, code);
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) {
-                int id = rs.getInt("id");
-                return id;
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        Coupon existing = CouponRegistry.find(code);
+        if (existing != null) return existing.getId();
+        return insertCoupon(code, rate);
+    }
 
-        String insert = "INSERT INTO couponinfo (code, discount_rate, is_active) VALUES (?, ?, 1)";
+    /**
+     * Inserts an active coupon unless its normalized code already exists
+     * (unique index on code_norm); either way returns the coupon id.
+     *
+     * @return coupon id, or -1 on failure
+     */
+    int insertCoupon(String code, double rate) {
+        String insert = "INSERT INTO couponinfo (code, discount_rate, is_active) VALUES (?, ?, 1) " +
+                        "ON DUPLICATE KEY UPDATE id = LAST_INSERT_ID(id)";
         try (Connection conn = DatabaseAdapter.getConnection();
              PreparedStatement ps = conn.prepareStatement(insert, Statement.RETURN_GENERATED_KEYS)) {
-            ps.setString(1, code.toUpperCase());
+            ps.setString(1, CouponRegistry.normalize(code));
             ps.setDouble(2, rate);
-            int affected = ps.executeUpdate();
-            if (affected > 0) {
-                ResultSet gk = ps.getGeneratedKeys();
+            ps.executeUpdate();
+            try (ResultSet gk = ps.getGeneratedKeys()) {
                 if (gk.next()) {
-                    int newId = gk.getInt(1);
-                    return newId;
+                    return gk.getInt(1);
                 }
             }
         } catch (SQLException e) {
             e.printStackTrace();
+        } finally {
+            CouponRegistry.invalidate();
         }
         // failed to create/find coupon
         return -1;
@@ -191,11 +195,13 @@ public class CouponDAO {
      * Returns true if the user has ever been assigned the given coupon code (redeemed or not).
      */
     public boolean userHasCouponEver(int userId, String code) {
-        String sql = "SELECT 1 FROM user_coupons uc JOIN couponinfo c ON uc.coupon_id = c.id WHERE uc.user_id = ? AND UPPER(c.code) = UPPER(?) LIMIT 1";
+        Coupon coupon = CouponRegistry.find(code);
+        if (coupon == null) return false;
+        String sql = "SELECT 1 FROM user_coupons WHERE user_id = ? AND coupon_id = ? LIMIT 1";
         try (Connection conn = DatabaseAdapter.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, userId);
-            ps.setString(2, code);
+            ps.setInt(2, coupon.getId());
             ResultSet rs = ps.executeQuery();
             return rs.next();
         } catch (SQLException e) {
@@ -217,16 +223,7 @@ public class CouponDAO {
      * Returns true if coupon exists and is active
      */
     public boolean couponExists(String code) {
-        String sql = "SELECT id FROM couponinfo WHERE UPPER(code) = UPPER(?) AND is_active = 1 LIMIT 1";
-        try (Connection conn = DatabaseAdapter.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, code);
-            ResultSet rs = ps.executeQuery();
-            return rs.next();
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return false;
-        }
+        return CouponRegistry.isActive(code);
     }
 
     /**
@@ -234,12 +231,13 @@ public class CouponDAO {
      * Returns true if a row was updated.
      */
     public boolean redeemUserCoupon(int userId, String code) {
-        String sql = "UPDATE user_coupons uc JOIN couponinfo c ON uc.coupon_id = c.id " +
-                 "SET uc.redeemed = 1 WHERE uc.user_id = ? AND UPPER(c.code) = UPPER(?) AND uc.redeemed = 0";
+        Coupon coupon = CouponRegistry.find(code);
+        if (coupon == null) return false;
+        String sql = "UPDATE user_coupons SET redeemed = 1 WHERE user_id = ? AND coupon_id = ? AND redeemed = 0";
         try (Connection conn = DatabaseAdapter.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, userId);
-            ps.setString(2, code);
+            ps.setInt(2, coupon.getId());
             int updated = ps.executeUpdate();
             return updated > 0;
         } catch (SQLException e) {
@@ -0,0 +1,140 @@
+package services;
+
+import models.Coupon;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * In-memory registry of all coupons, keyed by normalized code.
+ *
+ * The coupon table is tiny and read on every cart open, coupon entry and
+ * checkout, so it is loaded once and served from memory. Lookups normalize
+ * the code the same way couponinfo.code_norm does (trimmed, upper case), so
+ * "save20 " finds SAVE20 without a database call. Writes through CouponDAO
+ * invalidate the registry; a TTL (greengrocer.couponCacheTtlMs, default
+ * 5 minutes) picks up changes made by other clients.
+ *
+ * The first load also creates the built-in FREESHIP and LOYAL5 coupons if
+ * the database was not seeded with them.
+ *
+ * @author Group04
+ * @version 1.0
+ */
+public class CouponRegistry {
+
+    private static final long TTL_MS = Long.getLong("greengrocer.couponCacheTtlMs", 5 * 60_000L);
+
+    // Coupons the cart relies on, with the rate they are created with if missing
+    private static final Map<String, Double> BUILT_IN = Map.of("FREESHIP", 0.0, "LOYAL5", 5.0);
+
+    private static final CouponDAO couponDAO = new CouponDAO();
+
+    // Immutable snapshot, replaced as a whole; null means "not loaded"
+    private static volatile Map<String, Coupon> byCode = null;
+    private static volatile long expiresAt = 0;
+    private static boolean builtInsChecked = false; // guarded by the class lock
+
+    /**
+     * @param code coupon code in any case, surrounding blanks ignored
+     * @return the coupon (active or not), or null if no such code exists
+     */
+    public static Coupon find(String code) {
+        if (code == null) return null;
+        return coupons().get(normalize(code));
+    }
+
+    /**
+     * @param code coupon code
+     * @return true if the coupon exists and is active
+     */
+    public static boolean isActive(String code) {
+        Coupon c = find(code);
+        return c != null && c.isActive();
+    }
+
+    /**
+     * @param code coupon code
+     * @return discount rate in percent, or 0.0 if the coupon is unknown or inactive
+     */
+    public static double getDiscountRate(String code) {
+        Coupon c = find(code);
+        return (c != null && c.isActive()) ? c.getDiscountRate() : 0.0;
+    }
+
+    /**
+     * @return active coupons in id order
+     */
+    public static List<Coupon> getActive() {
+        List<Coupon> active = new ArrayList<>();
+        for (Coupon c : coupons().values()) {
+            if (c.isActive()) active.add(c);
+        }
+        return active;
+    }
+
+    /**
+     * Drops the registry; the next lookup reloads couponinfo.
+     */
+    public static void invalidate() {
+        byCode = null;
+    }
+
+    /**
+     * @return the code as stored in couponinfo.code_norm
+     */
+    public static String normalize(String code) {
+        return code.trim().toUpperCase(Locale.ROOT);
+    }
+
+    private static Map<String, Coupon> coupons() {
+        Map<String, Coupon> snapshot = byCode;
+        if (snapshot != null && System.currentTimeMillis() < expiresAt) return snapshot;
+        return load();
+    }
+
+    private static synchronized Map<String, Coupon> load() {
+        Map<String, Coupon> snapshot = byCode;
+        if (snapshot != null && System.currentTimeMillis() < expiresAt) return snapshot;
+
+        List<Coupon> rows = couponDAO.loadAll();
+        if (rows == null) {
+            // Database unreachable: keep serving what we had (or nothing), retry on the next lookup
+            return (snapshot != null) ? snapshot : Collections.emptyMap();
+        }
+        if (!builtInsChecked) {
+            builtInsChecked = true;
+            if (createMissingBuiltIns(rows)) {
+                List<Coupon> reloaded = couponDAO.loadAll();
+                if (reloaded != null) rows = reloaded;
+            }
+        }
+
+        Map<String, Coupon> index = new LinkedHashMap<>();
+        for (Coupon c : rows) {
+            index.put(normalize(c.getCode()), c);
+        }
+        snapshot = Collections.unmodifiableMap(index);
+        expiresAt = System.currentTimeMillis() + TTL_MS;
+        byCode = snapshot;
+        return snapshot;
+    }
+
+    private static boolean createMissingBuiltIns(List<Coupon> rows) {
+        boolean created = false;
+        for (Map.Entry<String, Double> builtIn : BUILT_IN.entrySet()) {
+            boolean present = false;
+            for (Coupon c : rows) {
+                if (normalize(c.getCode()).equals(builtIn.getKey())) {
+                    present = true;
+                    break;
+                }
+            }
+            if (!present && couponDAO.insertCoupon(builtIn.getKey(), builtIn.getValue()) > 0) created = true;
+        }
+        return created;
+    }
+}
@@ -1,26 +1,45 @@
 package services;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
 /**
  * Simple database connection helper.
  * Provides a JDBC connection to the application's MySQL database.
+ *
+ * Connections come from a bounded {@link ConnectionPool}; closing them
+ * returns them to the pool instead of tearing down the MySQL session.
+ * Prepared statements are server-side and cached per connection, so
+ * repeated DAO queries skip re-parsing on the server.
+ * JDBC batches of INSERTs are rewritten by the driver into one multi-row
+ * statement, so a batch costs a single round trip.
  */
 public class DatabaseAdapter
 {
     private static final String URL =
-        "jdbc:mysql://localhost:3306/greengrocer_group4?useSSL=false&allowPublicKeyRetrieval=true&serverTimezone=UTC";
+        "jdbc:mysql://localhost:3306/greengrocer_group4?useSSL=false&allowPublicKeyRetrieval=true&serverTimezone=UTC"
+        + "&useServerPrepStmts=true&rewriteBatchedStatements=true";
     private static final String USER = "myuser";
     private static final String PASS = "1234";
 
+    // Pool sizing (can be overridden with -Dgreengrocer.db.* system properties)
+    private static final int POOL_SIZE = Integer.getInteger("greengrocer.db.poolSize", 10);
+    private static final long ACQUIRE_TIMEOUT_MS = Long.getLong("greengrocer.db.acquireTimeoutMs", 5_000L);
+    private static final long VALIDATION_INTERVAL_MS = 30_000L;
+    private static final long IDLE_TIMEOUT_MS = 5 * 60_000L;
+    private static final long MAX_LIFETIME_MS = 30 * 60_000L;
+    private static final int STATEMENT_CACHE_SIZE = Integer.getInteger("greengrocer.db.statementCacheSize", 64);
+
+    private static final ConnectionPool POOL = new ConnectionPool(
+        URL, USER, PASS, POOL_SIZE, ACQUIRE_TIMEOUT_MS,
+        VALIDATION_INTERVAL_MS, IDLE_TIMEOUT_MS, MAX_LIFETIME_MS, STATEMENT_CACHE_SIZE);
+
     public static Connection getConnection()
     {
         try
         {
-            // Obtain a JDBC connection from DriverManager
-            return DriverManager.getConnection(URL, USER, PASS);
+            // Borrow a JDBC connection from the pool
+            return POOL.getConnection();
         }
         catch (SQLException e)
         {
@@ -30,4 +49,36 @@ public class DatabaseAdapter
             return null;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * @return maximum number of pooled connections
+     */
+    public static int getPoolSize()
+    {
+        return POOL_SIZE;
+    }
+
+    /**
+     * @return current pool counters (active, idle, wait times)
+     */
+    public static ConnectionPool.Stats getPoolStats()
+    {
+        return POOL.getStats();
+    }
+
+    /**
+     * @return prepared statement cache hit/miss counters
+     */
+    public static String getStatementCacheStats()
+    {
+        return StatementCache.describeStats();
+    }
+
+    /**
+     * Closes all pooled connections. Called once when the application exits.
+     */
+    public static void shutdown()
+    {
+        POOL.shutdown();
+    }
+}
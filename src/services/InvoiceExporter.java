@@ -0,0 +1,208 @@
+package services;
+
+import models.Order;
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Exports all invoices of a date range into one ZIP archive.
+ *
+ * Orders are streamed from {@link OrderDAO#forEachOrderBetween} and each PDF is
+ * fetched from {@link InvoiceStore} or, if none is stored, rendered with
+ * {@link PDFInvoiceGenerator} on a small worker pool. The calling thread
+ * writes finished PDFs into the ZipOutputStream in order and never lets more
+ * than a fixed window of invoices be in flight, so heap use is the same for a
+ * hundred invoices or fifty thousand.
+ *
+ * {@code java services.InvoiceExporter <from yyyy-MM-dd> <to yyyy-MM-dd> <file.zip>}
+ *
+ * @author Group04
+ * @version 1.0
+ */
+public class InvoiceExporter {
+
+    /**
+     * Receives progress updates on the exporting thread.
+     * UI callers should hand them over with Platform.runLater.
+     */
+    public interface ProgressListener {
+        /**
+         * @param done invoices handled so far (written or failed)
+         * @param total invoices in the range when the export started
+         */
+        void onProgress(int done, int total);
+    }
+
+    /**
+     * Outcome of one export.
+     */
+    public static final class Result {
+        private final int exported;
+        private final int failed;
+
+        Result(int exported, int failed) {
+            this.exported = exported;
+            this.failed = failed;
+        }
+
+        public int getExported() { return exported; }
+        public int getFailed() { return failed; }
+
+        @Override
+        public String toString() {
+            return "Exported " + exported + " invoice(s), " + failed + " failed";
+        }
+    }
+
+    private static final DateTimeFormatter NAME_DATE = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    // Leave one pooled connection for the streaming query and one for the UI
+    private static final int WORKERS = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(),
+                                                            DatabaseAdapter.getPoolSize() - 2));
+    private static final int WINDOW = WORKERS * 4;
+
+    private static final OrderDAO orderDAO = new OrderDAO();
+
+    /**
+     * Writes the invoices of every non-cancelled order with a requested
+     * delivery time in [from, to) to {@code out} as a ZIP archive.
+     * Orders whose invoice cannot be produced are skipped and counted as failed.
+     *
+     * @param from inclusive lower bound
+     * @param to exclusive upper bound
+     * @param out destination; finished but not closed
+     * @param listener progress callback, may be null
+     * @return exported / failed counts
+     * @throws IOException if writing the archive fails or the orders cannot be read
+     */
+    public static Result export(LocalDateTime from, LocalDateTime to, OutputStream out,
+                                ProgressListener listener) throws IOException {
+        int total = Math.max(0, orderDAO.countOrdersBetween(from, to));
+        AtomicInteger threadNo = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(WORKERS, r -> {
+            Thread t = new Thread(r, "invoice-export-" + threadNo.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        ZipOutputStream zip = new ZipOutputStream(out);
+        zip.setLevel(Deflater.BEST_SPEED); // content streams are already compressed
+        Deque<Pending> window = new ArrayDeque<>();
+        int[] counts = new int[2]; // exported, failed
+
+        try {
+            boolean ok = orderDAO.forEachOrderBetween(from, to, order -> {
+                if (window.size() >= WINDOW) {
+                    writeNext(zip, window, counts, total, listener);
+                }
+                window.add(new Pending(order, CompletableFuture.supplyAsync(() -> fetchOrRender(order), pool)));
+            });
+            while (!window.isEmpty()) {
+                writeNext(zip, window, counts, total, listener);
+            }
+            if (!ok) throw new IOException("Orders could not be read from the database.");
+            zip.finish();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            for (Pending p : window) p.pdf.cancel(false);
+            pool.shutdownNow();
+        }
+        return new Result(counts[0], counts[1]);
+    }
+
+    private static byte[] fetchOrRender(Order order) {
+        byte[] pdf = InvoiceStore.load(order.getId());
+        if (pdf == null || pdf.length == 0) {
+            pdf = PDFInvoiceGenerator.generateInvoicePDF(order);
+        }
+        return pdf;
+    }
+
+    // Waits for the oldest pending invoice and appends it to the archive
+    private static void writeNext(ZipOutputStream zip, Deque<Pending> window, int[] counts,
+                                  int total, ProgressListener listener) {
+        Pending next = window.poll();
+        byte[] pdf;
+        try {
+            pdf = next.pdf.join();
+        } catch (CompletionException e) {
+            pdf = null;
+        }
+
+        if (pdf == null || pdf.length == 0) {
+            System.err.println("Invoice export: no invoice for order #" + next.order.getId());
+            counts[1]++;
+        } else {
+            try {
+                zip.putNextEntry(new ZipEntry(entryName(next.order)));
+                zip.write(pdf);
+                zip.closeEntry();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            counts[0]++;
+        }
+        if (listener != null) listener.onProgress(counts[0] + counts[1], total);
+    }
+
+    private static String entryName(Order order) {
+        String date = (order.getDeliveryTime() != null) ? order.getDeliveryTime().format(NAME_DATE) : "undated";
+        return "Invoice_" + date + "_" + order.getId() + ".pdf";
+    }
+
+    private static final class Pending {
+        final Order order;
+        final CompletableFuture<byte[]> pdf;
+
+        Pending(Order order, CompletableFuture<byte[]> pdf) {
+            this.order = order;
+            this.pdf = pdf;
+        }
+    }
+
+    /**
+     * Command line export; the date range includes both given days.
+     */
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            System.out.println("Usage: InvoiceExporter <from yyyy-MM-dd> <to yyyy-MM-dd> <file.zip>");
+            return;
+        }
+        LocalDateTime from = LocalDate.parse(args[0]).atStartOfDay();
+        LocalDateTime to = LocalDate.parse(args[1]).plusDays(1).atStartOfDay();
+
+        long start = System.nanoTime();
+        int[] lastPercent = {-1};
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(args[2]))) {
+            Result result = export(from, to, out, (done, total) -> {
+                int percent = total == 0 ? 100 : (int) (100L * done / total);
+                if (percent / 10 != lastPercent[0] / 10) {
+                    lastPercent[0] = percent;
+                    System.out.println("  " + done + "/" + total + " (" + percent + "%)");
+                }
+            });
+            System.out.printf("%s in %.1f s -> %s%n", result, (System.nanoTime() - start) / 1e9, args[2]);
+        } catch (IOException e) {
+            System.err.println("Export failed: " + e.getMessage());
+        } finally {
+            DatabaseAdapter.shutdown();
+        }
+    }
+}
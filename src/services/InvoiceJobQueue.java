@@ -0,0 +1,98 @@
+package services;
+
+import models.Order;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Background queue that renders and stores order invoices.
+ *
+ * Order placement only enqueues a job and returns; a small worker pool
+ * generates the PDF and saves it. A failed attempt is retried with a growing
+ * delay. At most one job per order is in flight: asking for an order that is
+ * already queued returns the same future, so the invoice screen can simply
+ * wait for it or start the job on demand when no stored invoice exists.
+ *
+ * @author Group04
+ * @version 1.0
+ */
+public class InvoiceJobQueue {
+
+    private static final int WORKERS = 2;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_DELAY_MS = 500;
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    private static final ScheduledThreadPoolExecutor workers = new ScheduledThreadPoolExecutor(WORKERS, r -> {
+        Thread t = new Thread(r, "invoice-worker-" + threadCount.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Jobs queued or running, by order id
+    private static final Map<Integer, CompletableFuture<byte[]>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Queues invoice generation for an order, or returns the job already queued for it.
+     *
+     * @param order committed order (id set)
+     * @return future completed with the stored PDF bytes, or exceptionally after the last failed attempt
+     */
+    public static CompletableFuture<byte[]> submit(Order order) {
+        return inFlight.computeIfAbsent(order.getId(), id -> {
+            CompletableFuture<byte[]> job = new CompletableFuture<>();
+            job.whenComplete((pdf, error) -> inFlight.remove(id, job));
+            workers.execute(() -> attempt(order, job, 1));
+            return job;
+        });
+    }
+
+    /**
+     * @param orderId order id
+     * @return the queued or running job for the order, or null if there is none
+     */
+    public static CompletableFuture<byte[]> getPending(int orderId) {
+        return inFlight.get(orderId);
+    }
+
+    private static void attempt(Order order, CompletableFuture<byte[]> job, int attemptNo) {
+        try {
+            byte[] pdf = PDFInvoiceGenerator.generateInvoicePDF(order);
+            if (pdf == null || pdf.length == 0) {
+                throw new IllegalStateException("Invoice generation failed.");
+            }
+            if (!InvoiceStore.save(order.getId(), pdf)) {
+                throw new IllegalStateException("Invoice could not be stored.");
+            }
+            job.complete(pdf);
+        } catch (RuntimeException e) {
+            if (attemptNo >= MAX_ATTEMPTS) {
+                System.err.println("Invoice for order #" + order.getId() + " failed after " + attemptNo + " attempts: " + e.getMessage());
+                job.completeExceptionally(e);
+            } else {
+                long delay = RETRY_DELAY_MS << (attemptNo - 1); // 0.5s, 1s, ...
+                workers.schedule(() -> attempt(order, job, attemptNo + 1), delay, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Lets queued jobs finish (up to the timeout) before the application exits.
+     *
+     * @param timeoutMs maximum time to wait
+     */
+    public static void shutdown(long timeoutMs) {
+        try {
+            CompletableFuture.allOf(inFlight.values().toArray(new CompletableFuture<?>[0]))
+                .get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            System.err.println("Invoice queue: " + inFlight.size() + " job(s) not finished at shutdown.");
+        }
+        workers.shutdownNow();
+    }
+}
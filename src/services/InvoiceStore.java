@@ -0,0 +1,233 @@
+package services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Storage for order invoice PDFs.
+ *
+ * Invoices live in their own invoice_store table as raw bytes, one row per
+ * order, together with their size and SHA-256. Keeping them out of orderinfo
+ * means order listings never drag PDF data along, and storing raw bytes
+ * instead of Base64 text saves about a third of the space. Reads stream the
+ * blob with getBinaryStream, so a PDF is never held twice in memory.
+ *
+ * Older databases kept invoices Base64 encoded in orderinfo.invoice_log (and
+ * sometimes invoice_pdf); {@link #migrateLegacy()} moves them over.
+ *
+ * @author Group04
+ * @version 1.0
+ */
+public class InvoiceStore {
+
+    private static final String SAVE_SQL =
+        "INSERT INTO invoice_store (order_id, sha256, size_bytes, pdf) VALUES (?, ?, ?, ?) " +
+        "ON DUPLICATE KEY UPDATE sha256 = VALUES(sha256), size_bytes = VALUES(size_bytes), " +
+        "pdf = VALUES(pdf), created_at = CURRENT_TIMESTAMP";
+
+    private static final int COPY_BUFFER = 16 * 1024;
+
+    /**
+     * Stores (or replaces) the invoice of an order.
+     *
+     * @param orderId order id
+     * @param pdf PDF bytes
+     * @return true if the row was written
+     */
+    public static boolean save(int orderId, byte[] pdf) {
+        if (pdf == null || pdf.length == 0) return false;
+        try (Connection conn = DatabaseAdapter.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SAVE_SQL)) {
+            pstmt.setInt(1, orderId);
+            pstmt.setString(2, sha256(pdf));
+            pstmt.setInt(3, pdf.length);
+            pstmt.setBytes(4, pdf);
+            return pstmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            System.err.println("Warning: Failed to store invoice for order #" + orderId + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * @param orderId order id
+     * @return true if an invoice is stored for the order
+     */
+    public static boolean exists(int orderId) {
+        String sql = "SELECT 1 FROM invoice_store WHERE order_id = ?";
+        try (Connection conn = DatabaseAdapter.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, orderId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next();
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * @param orderId order id
+     * @return stored PDF bytes, or null if none is stored
+     */
+    public static byte[] load(int orderId) {
+        String sql = "SELECT pdf FROM invoice_store WHERE order_id = ?";
+        try (Connection conn = DatabaseAdapter.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, orderId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getBytes("pdf") : null;
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Streams the stored invoice of an order into {@code out}.
+     *
+     * @param orderId order id
+     * @param out destination; not closed
+     * @return number of bytes copied, or -1 if no invoice is stored
+     * @throws IOException if writing to {@code out} fails
+     */
+    public static long copyTo(int orderId, OutputStream out) throws IOException {
+        String sql = "SELECT pdf FROM invoice_store WHERE order_id = ?";
+        try (Connection conn = DatabaseAdapter.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, orderId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) return -1;
+                try (InputStream in = rs.getBinaryStream("pdf")) {
+                    if (in == null) return -1;
+                    long copied = 0;
+                    byte[] buffer = new byte[COPY_BUFFER];
+                    int n;
+                    while ((n = in.read(buffer)) > 0) {
+                        out.write(buffer, 0, n);
+                        copied += n;
+                    }
+                    return copied;
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    /**
+     * One-off migration: copies invoices still held in orderinfo.invoice_pdf /
+     * invoice_log (Base64) into invoice_store, then clears the old columns.
+     * Rows are moved one at a time so memory stays bounded. The old columns
+     * are cleared only once the PDF is safely stored; rows whose content is
+     * not a PDF (e.g. old text invoices) are left untouched in orderinfo.
+     *
+     * @return number of invoices moved
+     */
+    public static int migrateLegacy() {
+        List<Integer> ids = new ArrayList<>();
+        String findSql = "SELECT id FROM orderinfo WHERE invoice_pdf IS NOT NULL OR invoice_log IS NOT NULL";
+        try (Connection conn = DatabaseAdapter.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(findSql);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                ids.add(rs.getInt(1));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return 0;
+        }
+
+        int moved = 0;
+        for (Integer id : ids) {
+            if (migrateRow(id)) moved++;
+        }
+        return moved;
+    }
+
+    private static boolean migrateRow(int orderId) {
+        String readSql = "SELECT invoice_pdf, invoice_log FROM orderinfo WHERE id = ?";
+        String clearSql = "UPDATE orderinfo SET invoice_pdf = NULL, invoice_log = NULL WHERE id = ?";
+
+        byte[] pdf = null;
+        try (Connection conn = DatabaseAdapter.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(readSql)) {
+            pstmt.setInt(1, orderId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) return false;
+                pdf = rs.getBytes("invoice_pdf");
+                if (!looksLikePdf(pdf)) {
+                    String base64 = rs.getString("invoice_log");
+                    try {
+                        pdf = (base64 != null) ? Base64.getMimeDecoder().decode(base64) : null;
+                    } catch (IllegalArgumentException ex) {
+                        pdf = null;
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+
+        if (!looksLikePdf(pdf)) {
+            System.err.println("Warning: Invoice of order #" + orderId + " is not a PDF; left in orderinfo.");
+            return false;
+        }
+        boolean stored = exists(orderId) || save(orderId, pdf);
+        if (stored) {
+            try (Connection conn = DatabaseAdapter.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(clearSql)) {
+                pstmt.setInt(1, orderId);
+                pstmt.executeUpdate();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+        return stored;
+    }
+
+    static boolean looksLikePdf(byte[] data) {
+        return data != null && data.length >= 4
+            && new String(data, 0, 4, StandardCharsets.ISO_8859_1).equals("%PDF");
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // every JRE ships SHA-256
+        }
+    }
+
+    /**
+     * Command line migration: {@code java services.InvoiceStore --migrate}
+     */
+    public static void main(String[] args) {
+        if (args.length == 0 || !"--migrate".equals(args[0])) {
+            System.out.println("Usage: InvoiceStore --migrate");
+            return;
+        }
+        try {
+            int n = migrateLegacy();
+            System.out.println("Invoices moved to invoice_store: " + n);
+        } finally {
+            DatabaseAdapter.shutdown();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package services;
+
+import models.Message;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * In-process publish/subscribe bus for chat messages.
+ *
+ * {@link MessageDAO#saveMessage(Message)} publishes every stored message, and
+ * chat screens subscribe for the user they show, so a reply appears as soon
+ * as it is saved. Listeners are called on the publishing thread (never the
+ * JavaFX thread); UI code must hand off with Platform.runLater.
+ *
+ * Messages saved by another application instance never reach this bus, so
+ * a background poller covers them: while anyone is subscribed it asks the
+ * database for messages addressed to each subscribed user with an id above
+ * the last one seen (an index range scan on to_user_id, id) and publishes
+ * what it finds. The poller stops when the last subscription is closed and
+ * starts again with the next one. Set greengrocer.chatPollMs=0 to disable it.
+ *
+ * @author Group04
+ * @version 1.0
+ */
+public class MessageBus {
+
+    private static final long POLL_INTERVAL_MS = Long.getLong("greengrocer.chatPollMs", 2_000L);
+    private static final int POLL_BATCH = 100;
+
+    // Listeners per user id; a message goes to its sender's and recipient's listeners
+    private static final Map<Integer, List<Consumer<Message>>> subscribers = new ConcurrentHashMap<>();
+
+    // Highest message id already delivered to each subscribed recipient
+    private static final Map<Integer, Integer> lastSeenIds = new ConcurrentHashMap<>();
+
+    private static final MessageDAO messageDAO = new MessageDAO();
+    private static Thread poller; // guarded by the class lock
+
+    /**
+     * Handle returned by {@link #subscribe}; closing it removes the listener.
+     */
+    public static final class Subscription implements AutoCloseable {
+        private final int userId;
+        private final Consumer<Message> listener;
+
+        private Subscription(int userId, Consumer<Message> listener) {
+            this.userId = userId;
+            this.listener = listener;
+        }
+
+        @Override
+        public void close() {
+            subscribers.computeIfPresent(userId, (id, list) -> {
+                list.remove(listener);
+                if (!list.isEmpty()) return list;
+                lastSeenIds.remove(id);
+                return null;
+            });
+            stopPollerIfIdle();
+        }
+    }
+
+    /**
+     * Registers a listener for messages sent to or by a user.
+     *
+     * @param userId user whose messages are wanted
+     * @param listener called once per new message, on a background thread
+     * @return subscription to close when the screen goes away
+     */
+    public static Subscription subscribe(int userId, Consumer<Message> listener) {
+        // Added inside compute so a concurrent close cannot drop the list under us
+        subscribers.compute(userId, (id, list) -> {
+            if (list == null) list = new CopyOnWriteArrayList<>();
+            list.add(listener);
+            return list;
+        });
+        startPollerIfNeeded();
+        return new Subscription(userId, listener);
+    }
+
+    /**
+     * Delivers a stored message to its sender's and recipient's listeners.
+     *
+     * @param m message with its database id set
+     */
+    public static void publish(Message m) {
+        if (m == null || m.getId() <= 0) return;
+        markSeen(m);
+        notify(m.getToUserId(), m);
+        if (m.getFromUserId() != m.getToUserId()) notify(m.getFromUserId(), m);
+    }
+
+    private static void notify(int userId, Message m) {
+        List<Consumer<Message>> list = subscribers.get(userId);
+        if (list == null) return;
+        for (Consumer<Message> listener : list) {
+            try {
+                listener.accept(m);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * @return true if the message had not been delivered to its recipient before
+     */
+    private static boolean markSeen(Message m) {
+        boolean[] fresh = new boolean[1];
+        // One atomic step, so the poller and a publisher cannot both claim the same message
+        lastSeenIds.compute(m.getToUserId(), (id, seen) -> {
+            if (seen != null && seen >= m.getId()) return seen;
+            fresh[0] = true;
+            return m.getId();
+        });
+        return fresh[0];
+    }
+
+    private static synchronized void startPollerIfNeeded() {
+        if (POLL_INTERVAL_MS <= 0 || poller != null) return;
+        poller = new Thread(MessageBus::pollLoop, "chat-poller");
+        poller.setDaemon(true);
+        poller.start();
+    }
+
+    private static synchronized void stopPollerIfIdle() {
+        if (poller == null || !subscribers.isEmpty()) return;
+        poller.interrupt();
+        poller = null;
+    }
+
+    private static void pollLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                Thread.sleep(POLL_INTERVAL_MS);
+                pollOnce();
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private static void pollOnce() {
+        for (Map.Entry<Integer, List<Consumer<Message>>> entry : subscribers.entrySet()) {
+            if (entry.getValue().isEmpty()) continue;
+            int userId = entry.getKey();
+
+            Integer lastSeen = lastSeenIds.get(userId);
+            if (lastSeen == null) {
+                // First poll for this user: start from the newest message, history is loaded by the screens
+                lastSeenIds.merge(userId, messageDAO.getLatestMessageIdTo(userId), Math::max);
+                continue;
+            }
+
+            List<Message> fresh;
+            do {
+                fresh = messageDAO.getMessagesToUserSince(userId, lastSeenIds.get(userId), POLL_BATCH);
+                for (Message m : fresh) {
+                    // Skip messages this instance already published itself
+                    if (markSeen(m)) {
+                        notify(m.getToUserId(), m);
+                        if (m.getFromUserId() != m.getToUserId()) notify(m.getFromUserId(), m);
+                    }
+                }
+            } while (fresh.size() == POLL_BATCH);
+        }
+    }
+}
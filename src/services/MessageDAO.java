@@ -1,14 +1,19 @@
 package services;
 
+import models.ConversationSummary;
 import models.Message;
+import models.User;
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Data access object for messages and conversations.
@@ -16,6 +21,25 @@ import java.util.Set;
  */
 public class MessageDAO {
 
+    /** Default number of messages loaded per page. */
+    public static final int PAGE_SIZE = 50;
+
+    // Each direction of a conversation is read separately so both halves can use
+    // idx_msg_pair_id (from_user_id, to_user_id, id) as a range scan.
+    private static final String SINCE_SQL =
+        "SELECT * FROM ("
+      + " (SELECT * FROM messageinfo WHERE from_user_id = ? AND to_user_id = ? AND id > ? ORDER BY id ASC LIMIT ?)"
+      + " UNION ALL"
+      + " (SELECT * FROM messageinfo WHERE from_user_id = ? AND to_user_id = ? AND id > ? ORDER BY id ASC LIMIT ?)"
+      + ") m ORDER BY id ASC LIMIT ?";
+
+    private static final String BEFORE_SQL =
+        "SELECT * FROM ("
+      + " (SELECT * FROM messageinfo WHERE from_user_id = ? AND to_user_id = ? AND id < ? ORDER BY id DESC LIMIT ?)"
+      + " UNION ALL"
+      + " (SELECT * FROM messageinfo WHERE from_user_id = ? AND to_user_id = ? AND id < ? ORDER BY id DESC LIMIT ?)"
+      + ") m ORDER BY id DESC LIMIT ?";
+
     public int getDefaultOwnerId() {
         String sql = "SELECT id FROM userinfo WHERE role = 'owner' LIMIT 1";
         try (Connection conn = DatabaseAdapter.getConnection();
@@ -40,6 +64,7 @@ public class MessageDAO {
                 try (ResultSet keys = pstmt.getGeneratedKeys()) {
                     if (keys.next()) m.setId(keys.getInt(1));
                 }
+                MessageBus.publish(m);
                 return true;
             }
         } catch (SQLException e) {
@@ -69,6 +94,139 @@ public class MessageDAO {
         return list;
     }
 
+    private static final String CONVERSATION_STREAM_SQL =
+        "SELECT * FROM messageinfo WHERE from_user_id = ? AND to_user_id = ? " +
+        "UNION ALL " +
+        "SELECT * FROM messageinfo WHERE from_user_id = ? AND to_user_id = ? " +
+        "ORDER BY id";
+
+    /**
+     * Streams a whole conversation, oldest first, one row at a time
+     * (see {@link StreamingQuery}); for exports of long histories.
+     *
+     * @param userA one participant
+     * @param userB other participant
+     * @param action called for every message, on the calling thread
+     * @return false if the query failed
+     */
+    public boolean forEachMessage(int userA, int userB, Consumer<? super Message> action) {
+        return StreamingQuery.forEach(CONVERSATION_STREAM_SQL, new Object[] {userA, userB, userB, userA}, this::mapRow, action);
+    }
+
+    /**
+     * Stream variant of {@link #forEachMessage}; close it to release the connection.
+     */
+    public Stream<Message> streamMessages(int userA, int userB) {
+        return StreamingQuery.stream(CONVERSATION_STREAM_SQL, new Object[] {userA, userB, userB, userA}, this::mapRow);
+    }
+
+    /**
+     * Messages between two users with an id greater than the cursor, oldest first.
+     * Use the id of the last message on screen to fetch only what is new.
+     *
+     * @param userA one participant
+     * @param userB other participant
+     * @param lastMessageId cursor (0 to start from the beginning)
+     * @param limit maximum number of messages returned
+     * @return new messages in ascending id order
+     */
+    public List<Message> getMessagesSince(int userA, int userB, int lastMessageId, int limit) {
+        return queryPage(SINCE_SQL, userA, userB, lastMessageId, limit);
+    }
+
+    /**
+     * One page of history older than the cursor, returned oldest first.
+     *
+     * @param userA one participant
+     * @param userB other participant
+     * @param beforeMessageId cursor: id of the oldest message on screen
+     * @param limit page size
+     * @return up to limit messages in ascending id order
+     */
+    public List<Message> getMessagesBefore(int userA, int userB, int beforeMessageId, int limit) {
+        List<Message> page = queryPage(BEFORE_SQL, userA, userB, beforeMessageId, limit);
+        Collections.reverse(page);
+        return page;
+    }
+
+    /**
+     * The most recent page of a conversation, oldest first.
+     */
+    public List<Message> getLatestMessages(int userA, int userB, int limit) {
+        return getMessagesBefore(userA, userB, Integer.MAX_VALUE, limit);
+    }
+
+    private List<Message> queryPage(String sql, int userA, int userB, int cursor, int limit) {
+        List<Message> list = new ArrayList<>();
+        try (Connection conn = DatabaseAdapter.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, userA);
+            pstmt.setInt(2, userB);
+            pstmt.setInt(3, cursor);
+            pstmt.setInt(4, limit);
+            pstmt.setInt(5, userB);
+            pstmt.setInt(6, userA);
+            pstmt.setInt(7, cursor);
+            pstmt.setInt(8, limit);
+            pstmt.setInt(9, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    list.add(mapRow(rs));
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return list;
+    }
+
+    /**
+     * Messages addressed to a user with an id greater than the cursor, oldest
+     * first. Used by the {@link MessageBus} poller (range scan on idx_msg_to,
+     * whose entries end with the primary key).
+     *
+     * @param userId recipient
+     * @param lastMessageId cursor
+     * @param limit maximum number of messages returned
+     * @return new messages in ascending id order
+     */
+    public List<Message> getMessagesToUserSince(int userId, int lastMessageId, int limit) {
+        String sql = "SELECT * FROM messageinfo WHERE to_user_id = ? AND id > ? ORDER BY id ASC LIMIT ?";
+        List<Message> list = new ArrayList<>();
+        try (Connection conn = DatabaseAdapter.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, userId);
+            pstmt.setInt(2, lastMessageId);
+            pstmt.setInt(3, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    list.add(mapRow(rs));
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return list;
+    }
+
+    /**
+     * @param userId recipient
+     * @return id of the newest message addressed to the user, or 0 if none
+     */
+    public int getLatestMessageIdTo(int userId) {
+        String sql = "SELECT COALESCE(MAX(id), 0) FROM messageinfo WHERE to_user_id = ?";
+        try (Connection conn = DatabaseAdapter.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, userId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) return rs.getInt(1);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return 0;
+    }
+
     public List<Integer> getConversationPartnersForOwner(int ownerId) {
         String sql = "SELECT DISTINCT CASE WHEN from_user_id = ? THEN to_user_id ELSE from_user_id END AS other FROM messageinfo WHERE from_user_id = ? OR to_user_id = ?";
         List<Integer> partners = new ArrayList<>();
@@ -86,6 +244,66 @@ public class MessageDAO {
         return partners;
     }
 
+    /**
+     * The owner's conversation list in one round trip: every partner's user
+     * row, the time of the latest message and the number of unread messages
+     * from that partner, newest conversation first. Partner users are also
+     * put into {@link UserCache}.
+     *
+     * @param ownerId owner user id
+     * @return conversation summaries ordered by last message time (desc)
+     */
+    public List<ConversationSummary> getConversationSummariesForOwner(int ownerId) {
+        String sql = "SELECT u.*, c.last_sent_at, c.unread FROM ("
+                   + "  SELECT CASE WHEN from_user_id = ? THEN to_user_id ELSE from_user_id END AS other, "
+                   + "         MAX(sent_at) AS last_sent_at, "
+                   + "         SUM(CASE WHEN to_user_id = ? AND is_read = 0 THEN 1 ELSE 0 END) AS unread "
+                   + "  FROM messageinfo WHERE from_user_id = ? OR to_user_id = ? "
+                   + "  GROUP BY other"
+                   + ") c JOIN userinfo u ON u.id = c.other "
+                   + "ORDER BY c.last_sent_at DESC";
+        List<ConversationSummary> summaries = new ArrayList<>();
+        try (Connection conn = DatabaseAdapter.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, ownerId);
+            pstmt.setInt(2, ownerId);
+            pstmt.setInt(3, ownerId);
+            pstmt.setInt(4, ownerId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    User partner = UserDAO.mapRowToUser(rs);
+                    UserCache.put(partner);
+                    Timestamp last = rs.getTimestamp("last_sent_at");
+                    summaries.add(new ConversationSummary(partner,
+                        last != null ? last.toLocalDateTime() : null, rs.getInt("unread")));
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return summaries;
+    }
+
+    /**
+     * Marks every message sent from one user to another as read.
+     *
+     * @param readerId user who read the messages
+     * @param senderId user who sent them
+     * @return number of messages updated
+     */
+    public int markConversationRead(int readerId, int senderId) {
+        String sql = "UPDATE messageinfo SET is_read = 1 WHERE to_user_id = ? AND from_user_id = ? AND is_read = 0";
+        try (Connection conn = DatabaseAdapter.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, readerId);
+            pstmt.setInt(2, senderId);
+            return pstmt.executeUpdate();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return 0;
+    }
+
     private Message mapRow(ResultSet rs) throws SQLException {
         int id = rs.getInt("id");
         int from = rs.getInt("from_user_id");
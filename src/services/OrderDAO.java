@@ -2,10 +2,19 @@ package services;
 
 import models.Order;
 import models.OrderItem;
+import models.OrderPage;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.sql.*;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 import services.PDFInvoiceGenerator;
 /**
  * Data Access Object (DAO) for Order operations.
@@ -16,17 +25,46 @@ import services.PDFInvoiceGenerator;
 
 public class OrderDAO {
 
+    // Columns mapRowToOrder needs; never o.*, which would pull the legacy invoice blobs
+    private static final String ORDER_COLUMNS =
+        "o.id, o.customer_id, o.carrier_id, o.status, o.requested_delivery_time, o.delivered_time, o.total_cost";
+
     // 1. CREATE ORDER
+    /**
+     * Places an order in one short transaction:
+     * <ol>
+     *   <li>one conditional UPDATE decrements the stock of every product in the
+     *       order; a row only matches while {@code stock_kg >= requested}, so if
+     *       fewer rows match than there are products the order would oversell
+     *       and is rolled back before anything is inserted</li>
+     *   <li>the order row is inserted</li>
+     *   <li>all item rows are inserted as one JDBC batch (sent as a single
+     *       multi-row INSERT thanks to rewriteBatchedStatements)</li>
+     *   <li>the daily and per-product revenue rollups are updated</li>
+     * </ol>
+     * The stock left after the decrement is read inside the transaction and
+     * handed to {@link StockReservations#commit} once committed, which also
+     * consumes the customer's cart holds on the ordered products.
+     * The invoice is rendered afterwards by {@link InvoiceJobQueue}, so the
+     * method returns right after the commit.
+     *
+     * @param order order header (its id is set on success)
+     * @param items order lines
+     * @return true if the order was stored, false on insufficient stock or database error
+     */
     public boolean createOrder(Order order, List<OrderItem> items) {
         // requested_delivery_time is mandatory, defaulting to 2 hours later.
         String insertOrderSQL = "INSERT INTO orderinfo (customer_id, total_cost, status, requested_delivery_time) " + 
                     "VALUES (?, ?, 'CREATED', ?)";
                                 
         String insertItemSQL = "INSERT INTO orderiteminfo (order_id, product_id, amount_kg, unit_price, line_total) VALUES (?, ?, ?, ?, ?)";
-        String updateStockSQL = "UPDATE productinfo SET stock_kg = stock_kg - ? WHERE id = ?";
-        
-        // SQL to update the invoice as Base64 CLOB (invoice_log)
-        String updateLogSQL = "UPDATE orderinfo SET invoice_log = ? WHERE id = ?";
+
+        // Same product may appear on several lines; stock is checked against the total
+        Map<Integer, Double> qtyByProduct = new LinkedHashMap<>();
+        for (OrderItem item : items) {
+            qtyByProduct.merge(item.getProductId(), item.getQuantity(), Double::sum);
+        }
+        if (qtyByProduct.isEmpty()) return false;
         
         Connection conn = null;
         try {
@@ -35,85 +73,84 @@ public class OrderDAO {
 
             conn.setAutoCommit(false); // Start Transaction
 
-            // --- A) SAVE ORDER (MAIN) ---
-            PreparedStatement pstmtOrder = conn.prepareStatement(insertOrderSQL, Statement.RETURN_GENERATED_KEYS);
-            pstmtOrder.setInt(1, order.getCustomerId());
-            pstmtOrder.setDouble(2, order.getTotalCost()); 
+            // --- A) RESERVE STOCK (all products, one statement, oversell rejected) ---
+            try (PreparedStatement pstmtStock = conn.prepareStatement(buildStockDecrementSQL(qtyByProduct.size()))) {
+                bindStockDecrement(pstmtStock, qtyByProduct);
+                int matched = pstmtStock.executeUpdate();
+                if (matched != qtyByProduct.size()) {
+                    conn.rollback();
+                    System.err.println("Order rejected: insufficient stock for " + (qtyByProduct.size() - matched) + " product(s).");
+                    // Our cached stock figures were evidently stale
+                    ProductCatalogCache.invalidate();
+                    for (Integer productId : qtyByProduct.keySet()) {
+                        StockReservations.invalidate(productId);
+                    }
+                    return false;
+                }
+            }
+
+            // Stock as it will be committed (rows are locked by the update above)
+            Map<Integer, Double> stockAfter = readStock(conn, qtyByProduct.keySet());
+
+            // --- B) SAVE ORDER (MAIN) ---
+            int orderId;
             // Use the requested delivery time provided by the application (assume Istanbul zone applied earlier)
             java.time.LocalDateTime reqDt = null;
             try { reqDt = order.getDeliveryTime(); } catch (Exception ex) { reqDt = null; }
             if (reqDt == null) {
                 reqDt = java.time.LocalDateTime.now(java.time.ZoneId.of("Europe/Istanbul")).plusHours(2);
             }
-            // Use JDBC 4.2 setObject with LocalDateTime to avoid driver timezone conversions for DATETIME
-            // Use JDBC 4.2 setObject with LocalDateTime to store DATETIME without timezone conversion
-            pstmtOrder.setObject(3, reqDt);
-            
-            int affectedRows = pstmtOrder.executeUpdate();
-            if (affectedRows == 0) throw new SQLException("Creating order failed, no rows affected.");
-
-            // Get Generated ID
-            ResultSet rs = pstmtOrder.getGeneratedKeys();
-            int orderId = 0;
-            if (rs.next()) {
-                orderId = rs.getInt(1);
-                order.setId(orderId); // Set ID to order object for PDF generation
-            } else {
-                throw new SQLException("Creating order failed, no ID obtained.");
-            }
-
-            // --- B) SAVE ORDER ITEMS ---
-            PreparedStatement pstmtItem = conn.prepareStatement(insertItemSQL);
-            for (OrderItem item : items) {
-                pstmtItem.setInt(1, orderId);
-                pstmtItem.setInt(2, item.getProductId());
-                pstmtItem.setDouble(3, item.getQuantity());
-                pstmtItem.setDouble(4, item.getPricePerUnit());
+            // Values are rounded once to the column scale and the same figures go to
+            // the rollups, so a later cancellation subtracts exactly what was added
+            BigDecimal totalCost = toCents(order.getTotalCost());
+            try (PreparedStatement pstmtOrder = conn.prepareStatement(insertOrderSQL, Statement.RETURN_GENERATED_KEYS)) {
+                pstmtOrder.setInt(1, order.getCustomerId());
+                pstmtOrder.setBigDecimal(2, totalCost); 
+                // Use JDBC 4.2 setObject with LocalDateTime to store DATETIME without timezone conversion
+                pstmtOrder.setObject(3, reqDt);
                 
-                double lineTotal = item.getQuantity() * item.getPricePerUnit();
-                pstmtItem.setDouble(5, lineTotal);
-                
-                pstmtItem.addBatch(); 
-            }
-            pstmtItem.executeBatch(); 
+                int affectedRows = pstmtOrder.executeUpdate();
+                if (affectedRows == 0) throw new SQLException("Creating order failed, no rows affected.");
 
-            // --- C) UPDATE STOCK ---
-            PreparedStatement pstmtStock = conn.prepareStatement(updateStockSQL);
-            for (OrderItem item : items) {
-                pstmtStock.setDouble(1, item.getQuantity());
-                pstmtStock.setInt(2, item.getProductId());
-                pstmtStock.addBatch();
+                // Get Generated ID
+                try (ResultSet rs = pstmtOrder.getGeneratedKeys()) {
+                    if (rs.next()) {
+                        orderId = rs.getInt(1);
+                    } else {
+                        throw new SQLException("Creating order failed, no ID obtained.");
+                    }
+                }
             }
-            pstmtStock.executeBatch();
 
-            try {
-                // Ensure items are linked to the order object for the generator
-                // (Assuming Order class has setItems or getItems().addAll logic)
-                // order.setItems(items); 
-                
-                // Generate PDF bytes
-                // NOTE: Ensure PDFInvoiceGenerator class is imported or available
-                byte[] pdfData = PDFInvoiceGenerator.generateInvoicePDF(order); 
-                
-                if (pdfData != null) {
-                    // Save Base64-encoded PDF into invoice_log (CLOB) only (requirement)
-                    try (PreparedStatement pstmtLog = conn.prepareStatement(updateLogSQL)) {
-                        String base64 = java.util.Base64.getEncoder().encodeToString(pdfData);
-                        pstmtLog.setString(1, base64);
-                        pstmtLog.setInt(2, orderId);
-                        pstmtLog.executeUpdate();
-                    } catch (Exception e) {
-                        System.err.println("Warning: Failed to save invoice_log (CLOB): " + e.getMessage());
-                    }
+            // --- C) SAVE ORDER ITEMS (one batch) ---
+            List<RevenueRollup.Line> rollupLines = new ArrayList<>();
+            try (PreparedStatement pstmtItem = conn.prepareStatement(insertItemSQL)) {
+                for (OrderItem item : items) {
+                    BigDecimal amountKg = toCents(item.getQuantity());
+                    BigDecimal lineTotal = toCents(item.getQuantity() * item.getPricePerUnit());
+                    pstmtItem.setInt(1, orderId);
+                    pstmtItem.setInt(2, item.getProductId());
+                    pstmtItem.setBigDecimal(3, amountKg);
+                    pstmtItem.setBigDecimal(4, toCents(item.getPricePerUnit()));
+                    pstmtItem.setBigDecimal(5, lineTotal);
+                    
+                    pstmtItem.addBatch(); 
+                    rollupLines.add(new RevenueRollup.Line(item.getProductId(), amountKg, lineTotal));
                 }
-            } catch (Exception e) {
-                System.err.println("Warning: Failed to generate/save PDF Invoice: " + e.getMessage());
-                // We don't rollback the whole order just because PDF failed, but we log it.
+                pstmtItem.executeBatch(); 
             }
 
+            // --- D) ANALYTICS ROLLUPS (same transaction) ---
+            RevenueRollup.applyOrder(conn, reqDt.toLocalDate(), totalCost, rollupLines, 1);
+
             conn.commit(); // Commit Transaction
-            return true;
+            order.setId(orderId); // Set ID to order object for PDF generation
 
+            // Patch cached stock instead of reloading the whole catalog
+            for (Map.Entry<Integer, Double> e : qtyByProduct.entrySet()) {
+                ProductCatalogCache.adjustStock(e.getKey(), -e.getValue());
+            }
+            StockReservations.commit(order.getCustomerId(), stockAfter);
         } catch (SQLException e) {
             e.printStackTrace();
             try { if (conn != null) conn.rollback(); } catch (SQLException ex) { ex.printStackTrace(); }
@@ -121,6 +158,65 @@ public class OrderDAO {
         } finally {
             try { if (conn != null) { conn.setAutoCommit(true); conn.close(); } } catch (SQLException e) {}
         }
+
+        InvoiceJobQueue.submit(order);
+        return true;
+    }
+
+    /**
+     * UPDATE productinfo SET stock_kg = stock_kg - CASE id WHEN ? THEN ? ... END
+     * WHERE id IN (?, ...) AND stock_kg >= CASE id WHEN ? THEN ? ... END
+     */
+    private static String buildStockDecrementSQL(int productCount) {
+        StringBuilder caseExpr = new StringBuilder("CASE id");
+        StringBuilder inList = new StringBuilder();
+        for (int i = 0; i < productCount; i++) {
+            caseExpr.append(" WHEN ? THEN ?");
+            inList.append(i == 0 ? "?" : ", ?");
+        }
+        caseExpr.append(" END");
+        return "UPDATE productinfo SET stock_kg = stock_kg - " + caseExpr
+             + " WHERE id IN (" + inList + ") AND stock_kg >= " + caseExpr;
+    }
+
+    private static void bindStockDecrement(PreparedStatement pstmt, Map<Integer, Double> qtyByProduct) throws SQLException {
+        int i = 1;
+        for (Map.Entry<Integer, Double> e : qtyByProduct.entrySet()) {   // SET ... CASE
+            pstmt.setInt(i++, e.getKey());
+            pstmt.setDouble(i++, e.getValue());
+        }
+        for (Integer productId : qtyByProduct.keySet()) {                  // WHERE id IN
+            pstmt.setInt(i++, productId);
+        }
+        for (Map.Entry<Integer, Double> e : qtyByProduct.entrySet()) {   // AND stock_kg >= CASE
+            pstmt.setInt(i++, e.getKey());
+            pstmt.setDouble(i++, e.getValue());
+        }
+    }
+
+    private static Map<Integer, Double> readStock(Connection conn, Collection<Integer> productIds) throws SQLException {
+        StringBuilder inList = new StringBuilder();
+        for (int i = 0; i < productIds.size(); i++) {
+            inList.append(i == 0 ? "?" : ", ?");
+        }
+        Map<Integer, Double> stock = new LinkedHashMap<>();
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT id, stock_kg FROM productinfo WHERE id IN (" + inList + ")")) {
+            int i = 1;
+            for (Integer productId : productIds) {
+                pstmt.setInt(i++, productId);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    stock.put(rs.getInt("id"), rs.getDouble("stock_kg"));
+                }
+            }
+        }
+        return stock;
+    }
+
+    /** Rounds a value to the decimal(10,2) scale of the order columns. */
+    private static BigDecimal toCents(double value) {
+        return BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP);
     }
 
     /**
@@ -132,7 +228,7 @@ public class OrderDAO {
      */
     public boolean cancelOrder(int orderId) {
         String updateOrder = "UPDATE orderinfo SET status = 'CANCELLED' WHERE id = ? AND status = 'CREATED'";
-        String getItems = "SELECT product_id, amount_kg FROM orderiteminfo WHERE order_id = ?";
+        String getItems = "SELECT product_id, amount_kg, unit_price, line_total FROM orderiteminfo WHERE order_id = ?";
         String updateStock = "UPDATE productinfo SET stock_kg = stock_kg + ? WHERE id = ?";
         
         Connection conn = null;
@@ -142,18 +238,20 @@ public class OrderDAO {
             
             conn.setAutoCommit(false); // Start transaction
             
-            // 1. Check if order exists and can be cancelled
+            // 1. Check if order exists and can be cancelled (row locked until commit)
             PreparedStatement pstmtCheck = conn.prepareStatement(
-                "SELECT COUNT(*) FROM orderinfo WHERE id = ? AND status = 'CREATED'"
+                "SELECT requested_delivery_time, total_cost FROM orderinfo WHERE id = ? AND status = 'CREATED' FOR UPDATE"
             );
             pstmtCheck.setInt(1, orderId);
             ResultSet rsCheck = pstmtCheck.executeQuery();
             
-            if (!rsCheck.next() || rsCheck.getInt(1) == 0) {
+            if (!rsCheck.next()) {
                 conn.rollback();
                 System.err.println("Cannot cancel Order #" + orderId + " - Not in CREATED status or doesn't exist");
                 return false;
             }
+            LocalDateTime requested = rsCheck.getObject("requested_delivery_time", LocalDateTime.class);
+            BigDecimal totalCost = rsCheck.getBigDecimal("total_cost");
             
             // 2. Get order items to restore stock
             PreparedStatement pstmtItems = conn.prepareStatement(getItems);
@@ -162,9 +260,14 @@ public class OrderDAO {
             
             // 3. Restore stock for each product
             PreparedStatement pstmtStock = conn.prepareStatement(updateStock);
+            List<OrderItem> restored = new ArrayList<>();
+            List<RevenueRollup.Line> rollupLines = new ArrayList<>();
             while (rsItems.next()) {
                 double amountKg = rsItems.getDouble("amount_kg");
                 int productId = rsItems.getInt("product_id");
+                restored.add(new OrderItem(productId, null, amountKg, rsItems.getDouble("unit_price")));
+                rollupLines.add(new RevenueRollup.Line(productId,
+                    rsItems.getBigDecimal("amount_kg"), rsItems.getBigDecimal("line_total")));
                 
                 pstmtStock.setDouble(1, amountKg);
                 pstmtStock.setInt(2, productId);
@@ -176,8 +279,16 @@ public class OrderDAO {
             PreparedStatement pstmtOrder = conn.prepareStatement(updateOrder);
             pstmtOrder.setInt(1, orderId);
             int affected = pstmtOrder.executeUpdate();
+
+            // 5. Take the order out of the analytics rollups
+            RevenueRollup.applyOrder(conn, requested.toLocalDate(), totalCost, rollupLines, -1);
             
             conn.commit(); // Commit transaction
+
+            for (OrderItem item : restored) {
+                ProductCatalogCache.adjustStock(item.getProductId(), item.getQuantity());
+                StockReservations.invalidate(item.getProductId());
+            }
             
             // Order cancelled and stock restored
             return affected > 0;
@@ -195,7 +306,7 @@ public class OrderDAO {
     public List<Order> getAllOrders() {
         List<Order> orders = new ArrayList<>();
         // LEFT JOIN to get username
-        String sql = "SELECT o.*, u.username, u.address FROM orderinfo o " +
+        String sql = "SELECT " + ORDER_COLUMNS + ", u.username, u.address FROM orderinfo o " +
                      "LEFT JOIN userinfo u ON o.customer_id = u.id " +
                      "ORDER BY o.requested_delivery_time DESC";
 
@@ -210,10 +321,78 @@ public class OrderDAO {
         return orders;
     }
 
+    /**
+     * One page of the owner's order listing, newest requested delivery time first.
+     *
+     * Uses keyset pagination on (requested_delivery_time, id): the next page
+     * starts right after the last row of the previous one, so every page costs
+     * the same index range scan no matter how deep the user has scrolled.
+     * Pass a null afterTime for the first page.
+     *
+     * @param status only orders with this status, or null for all
+     * @param from first requested delivery day to include, or null
+     * @param to last requested delivery day to include, or null
+     * @param afterTime cursor from {@link OrderPage#getLastRequestedTime()}, or null
+     * @param afterId cursor from {@link OrderPage#getLastId()}
+     * @param limit page size
+     * @return the page, or null if the query failed
+     */
+    public OrderPage getOrdersPage(String status, LocalDate from, LocalDate to,
+                                   LocalDateTime afterTime, int afterId, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT " + ORDER_COLUMNS + ", u.username, u.address FROM orderinfo o " +
+                                              "LEFT JOIN userinfo u ON o.customer_id = u.id WHERE 1 = 1");
+        List<Object> params = new ArrayList<>();
+        if (status != null) {
+            sql.append(" AND o.status = ?");
+            params.add(status);
+        }
+        if (from != null) {
+            sql.append(" AND o.requested_delivery_time >= ?");
+            params.add(from.atStartOfDay());
+        }
+        if (to != null) {
+            sql.append(" AND o.requested_delivery_time < ?");
+            params.add(to.plusDays(1).atStartOfDay());
+        }
+        if (afterTime != null) {
+            sql.append(" AND (o.requested_delivery_time, o.id) < (?, ?)");
+            params.add(afterTime);
+            params.add(afterId);
+        }
+        sql.append(" ORDER BY o.requested_delivery_time DESC, o.id DESC LIMIT ?");
+        params.add(limit + 1); // one extra row tells whether another page exists
+
+        List<Order> orders = new ArrayList<>();
+        LocalDateTime lastTime = null;
+        int lastId = 0;
+        boolean hasMore = false;
+        try (Connection conn = DatabaseAdapter.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < params.size(); i++) {
+                pstmt.setObject(i + 1, params.get(i));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    if (orders.size() == limit) {
+                        hasMore = true;
+                        break;
+                    }
+                    orders.add(mapRowToOrder(rs));
+                    lastTime = rs.getObject("requested_delivery_time", LocalDateTime.class);
+                    lastId = rs.getInt("id");
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+        return new OrderPage(orders, lastTime, lastId, hasMore);
+    }
+
     // 4. FOR CARRIER: GET PENDING ORDERS
     public List<Order> getPendingOrders() {
         List<Order> orders = new ArrayList<>();
-        String sql = "SELECT o.*, u.username, u.address FROM orderinfo o " +
+        String sql = "SELECT " + ORDER_COLUMNS + ", u.username, u.address FROM orderinfo o " +
                      "LEFT JOIN userinfo u ON o.customer_id = u.id " +
                      "WHERE o.status = 'CREATED' AND (o.carrier_id IS NULL OR o.carrier_id = 0)";
         
@@ -230,7 +409,7 @@ public class OrderDAO {
     // 5. FOR CARRIER: GET OWN ORDERS BY STATUS
     public List<Order> getOrdersByCarrierAndStatus(int carrierId, String status) {
         List<Order> orders = new ArrayList<>();
-        String sql = "SELECT o.*, u.username, u.address FROM orderinfo o " +
+        String sql = "SELECT " + ORDER_COLUMNS + ", u.username, u.address FROM orderinfo o " +
                      "LEFT JOIN userinfo u ON o.customer_id = u.id " +
                      "WHERE o.carrier_id = ? AND o.status = ?";
         
@@ -266,39 +445,80 @@ public class OrderDAO {
 
     /**
      * Update order status and optionally set the delivered_time column when marking DELIVERED.
+     * Moving an order into or out of DELIVERED also updates the delivered figures
+     * of revenue_daily; cancellations go through {@link #cancelOrder(int)}.
      * @param orderId order id
      * @param status new status
      * @param deliveredTime delivered LocalDateTime (applied when status == "DELIVERED")
      * @return true if update succeeded
      */
     public boolean updateOrderStatus(int orderId, String status, java.time.LocalDateTime deliveredTime) {
+        String selectCurrent = "SELECT status, requested_delivery_time, total_cost FROM orderinfo WHERE id = ? FOR UPDATE";
         String sqlWithDelivered = "UPDATE orderinfo SET status = ?, delivered_time = ? WHERE id = ?";
         String sqlSimple = "UPDATE orderinfo SET status = ? WHERE id = ?";
 
-        try (Connection conn = DatabaseAdapter.getConnection()) {
+        Connection conn = null;
+        try {
+            conn = DatabaseAdapter.getConnection();
             if (conn == null) return false;
+            conn.setAutoCommit(false);
 
+            String oldStatus;
+            LocalDateTime requested;
+            double totalCost;
+            try (PreparedStatement pstmt = conn.prepareStatement(selectCurrent)) {
+                pstmt.setInt(1, orderId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (!rs.next()) {
+                        conn.rollback();
+                        return false;
+                    }
+                    oldStatus = rs.getString("status");
+                    requested = rs.getObject("requested_delivery_time", LocalDateTime.class);
+                    totalCost = rs.getDouble("total_cost");
+                }
+            }
+
+            int updated;
             if ("DELIVERED".equalsIgnoreCase(status) && deliveredTime != null) {
                 try (PreparedStatement pstmt = conn.prepareStatement(sqlWithDelivered)) {
                     pstmt.setString(1, status);
                     pstmt.setObject(2, deliveredTime);
                     pstmt.setInt(3, orderId);
-                    return pstmt.executeUpdate() > 0;
+                    updated = pstmt.executeUpdate();
                 }
             } else {
                 try (PreparedStatement pstmt = conn.prepareStatement(sqlSimple)) {
                     pstmt.setString(1, status);
                     pstmt.setInt(2, orderId);
-                    return pstmt.executeUpdate() > 0;
+                    updated = pstmt.executeUpdate();
                 }
             }
-        } catch (Exception e) { e.printStackTrace(); return false; }
+
+            // Delivered revenue only changes when the order crosses the DELIVERED boundary
+            boolean wasDelivered = "DELIVERED".equalsIgnoreCase(oldStatus);
+            boolean isDelivered = "DELIVERED".equalsIgnoreCase(status);
+            if (updated > 0 && wasDelivered != isDelivered && !"CANCELLED".equalsIgnoreCase(oldStatus)) {
+                RevenueRollup.applyDelivery(conn, requested.toLocalDate(), totalCost, isDelivered ? 1 : -1);
+            }
+
+            conn.commit();
+            return updated > 0;
+        } catch (Exception e) {
+            e.printStackTrace();
+            try { if (conn != null) conn.rollback(); } catch (SQLException ex) { ex.printStackTrace(); }
+            return false;
+        } finally {
+            try { if (conn != null) { conn.setAutoCommit(true); conn.close(); } } catch (SQLException e) {}
+            // Delivered counts may have changed
+            CarrierStatsCache.invalidate();
+        }
     }
 
     // 8. FOR CUSTOMER: GET OWN ORDER HISTORY
     public List<Order> getOrdersByCustomerId(int customerId) {
         List<Order> orders = new ArrayList<>();
-        String sql = "SELECT o.*, u.username, u.address FROM orderinfo o " +
+        String sql = "SELECT " + ORDER_COLUMNS + ", u.username, u.address FROM orderinfo o " +
                      "LEFT JOIN userinfo u ON o.customer_id = u.id " +
                      "WHERE o.customer_id = ? " +
                      "ORDER BY o.requested_delivery_time DESC";
@@ -315,6 +535,112 @@ public class OrderDAO {
         return orders;
     }
 
+    /**
+     * Counts the non-cancelled orders whose requested delivery time lies in [from, to).
+     *
+     * @param from inclusive lower bound
+     * @param to exclusive upper bound
+     * @return number of orders, or -1 on error
+     */
+    public int countOrdersBetween(LocalDateTime from, LocalDateTime to) {
+        String sql = "SELECT COUNT(*) FROM orderinfo o " +
+                     "WHERE o.requested_delivery_time >= ? AND o.requested_delivery_time < ? AND o.status <> 'CANCELLED'";
+        try (Connection conn = DatabaseAdapter.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setObject(1, from);
+            pstmt.setObject(2, to);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    private static final String ORDERS_BETWEEN_SQL =
+        "SELECT " + ORDER_COLUMNS + ", u.username, u.address FROM orderinfo o " +
+        "LEFT JOIN userinfo u ON o.customer_id = u.id " +
+        "WHERE o.requested_delivery_time >= ? AND o.requested_delivery_time < ? AND o.status <> 'CANCELLED' " +
+        "ORDER BY o.requested_delivery_time, o.id";
+
+    private static final String ALL_ORDERS_SQL =
+        "SELECT " + ORDER_COLUMNS + ", u.username, u.address FROM orderinfo o " +
+        "LEFT JOIN userinfo u ON o.customer_id = u.id " +
+        "ORDER BY o.id";
+
+    /**
+     * Streams the non-cancelled orders whose requested delivery time lies in
+     * [from, to), oldest first, handing each one to {@code action} as it is
+     * read (see {@link StreamingQuery}). Exceptions thrown by the action stop
+     * the scan and are passed on to the caller.
+     *
+     * @param from inclusive lower bound
+     * @param to exclusive upper bound
+     * @param action called for every order, on the calling thread
+     * @return false if the query failed
+     */
+    public boolean forEachOrderBetween(LocalDateTime from, LocalDateTime to, Consumer<? super Order> action) {
+        return StreamingQuery.forEach(ORDERS_BETWEEN_SQL, new Object[] {from, to}, this::mapRowToOrder, action);
+    }
+
+    /**
+     * Stream variant of {@link #forEachOrderBetween}; close it (try-with-resources)
+     * to release the connection.
+     */
+    public Stream<Order> streamOrdersBetween(LocalDateTime from, LocalDateTime to) {
+        return StreamingQuery.stream(ORDERS_BETWEEN_SQL, new Object[] {from, to}, this::mapRowToOrder);
+    }
+
+    /**
+     * Streams every order (all statuses) in id order without materialising a list.
+     *
+     * @param action called for every order, on the calling thread
+     * @return false if the query failed
+     */
+    public boolean forEachOrder(Consumer<? super Order> action) {
+        return StreamingQuery.forEach(ALL_ORDERS_SQL, new Object[0], this::mapRowToOrder, action);
+    }
+
+    /**
+     * Stream variant of {@link #forEachOrder}; close it to release the connection.
+     */
+    public Stream<Order> streamOrders() {
+        return StreamingQuery.stream(ALL_ORDERS_SQL, new Object[0], this::mapRowToOrder);
+    }
+
+    /**
+     * Line items of one order in insertion order, with product names.
+     * Products deleted since the order was placed come back without a name.
+     *
+     * @param orderId order id
+     * @return items of the order (empty if none), or null if the query failed
+     */
+    public List<OrderItem> getOrderItems(int orderId) {
+        List<OrderItem> items = new ArrayList<>();
+        String sql = "SELECT oi.id, oi.order_id, oi.product_id, p.name, oi.amount_kg, oi.unit_price " +
+                     "FROM orderiteminfo oi " +
+                     "LEFT JOIN productinfo p ON oi.product_id = p.id " +
+                     "WHERE oi.order_id = ? ORDER BY oi.id";
+
+        try (Connection conn = DatabaseAdapter.getConnection()) {
+            if (conn == null) return null;
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setInt(1, orderId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        items.add(new OrderItem(rs.getInt("id"), rs.getInt("order_id"), rs.getInt("product_id"),
+                            rs.getString("name"), rs.getDouble("amount_kg"), rs.getDouble("unit_price")));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+        return items;
+    }
+
     // --- HELPER METHOD ---
     private Order mapRowToOrder(ResultSet rs) throws SQLException {
         // Read DATETIME as LocalDateTime to avoid timezone conversions by the driver
@@ -363,15 +689,16 @@ public class OrderDAO {
 
     /**
      * Returns revenue aggregated by product name (top N products by revenue).
-     * Key: product name, Value: total revenue (sum of line_total)
+     * Key: product name, Value: total revenue (sum of line_total, cancelled orders excluded)
+     * Reads the revenue_product rollup, one row per product.
      */
     public java.util.LinkedHashMap<String, Double> getRevenueByProductTopN(int limit) {
         java.util.LinkedHashMap<String, Double> map = new java.util.LinkedHashMap<>();
-        String sql = "SELECT p.name AS product_name, SUM(oi.line_total) AS revenue " +
-                     "FROM orderiteminfo oi " +
-                     "JOIN productinfo p ON oi.product_id = p.id " +
-                     "GROUP BY p.id, p.name " +
-                     "ORDER BY revenue DESC " +
+        String sql = "SELECT p.name AS product_name, r.revenue " +
+                     "FROM revenue_product r " +
+                     "JOIN productinfo p ON r.product_id = p.id " +
+                     "WHERE r.line_count > 0 " +
+                     "ORDER BY r.revenue DESC " +
                      "LIMIT ?";
         try (java.sql.Connection conn = DatabaseAdapter.getConnection();
              java.sql.PreparedStatement pstmt = conn.prepareStatement(sql)) {
@@ -388,13 +715,14 @@ public class OrderDAO {
     /**
      * Returns daily revenue for the last `days` days (including today).
      * Key: date string (yyyy-MM-dd), Value: total revenue for that day.
+     * Reads the revenue_daily rollup, one row per day.
      */
     public java.util.LinkedHashMap<String, Double> getDailyRevenueLastNDays(int days) {
         java.util.LinkedHashMap<String, Double> map = new java.util.LinkedHashMap<>();
-        String sql = "SELECT DATE(o.requested_delivery_time) AS d, SUM(o.total_cost) AS revenue " +
-                     "FROM orderinfo o " +
-                     "WHERE o.requested_delivery_time >= DATE_SUB(CURDATE(), INTERVAL ? DAY) " +
-                     "GROUP BY d ORDER BY d";
+        String sql = "SELECT r.day AS d, r.revenue " +
+                     "FROM revenue_daily r " +
+                     "WHERE r.day >= DATE_SUB(CURDATE(), INTERVAL ? DAY) AND r.order_count > 0 " +
+                     "ORDER BY r.day";
         try (java.sql.Connection conn = DatabaseAdapter.getConnection();
              java.sql.PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, days);
@@ -412,14 +740,15 @@ public class OrderDAO {
 
     /**
      * Returns top N products by total quantity sold (amount_kg) as LinkedHashMap(productName -> totalKg)
+     * Reads the revenue_product rollup, one row per product.
      */
     public java.util.LinkedHashMap<String, Double> getTopProductsByQuantityTopN(int limit) {
         java.util.LinkedHashMap<String, Double> map = new java.util.LinkedHashMap<>();
-        String sql = "SELECT p.name AS product_name, SUM(oi.amount_kg) AS qty " +
-                     "FROM orderiteminfo oi " +
-                     "JOIN productinfo p ON oi.product_id = p.id " +
-                     "GROUP BY p.id, p.name " +
-                     "ORDER BY qty DESC LIMIT ?";
+        String sql = "SELECT p.name AS product_name, r.qty_kg AS qty " +
+                     "FROM revenue_product r " +
+                     "JOIN productinfo p ON r.product_id = p.id " +
+                     "WHERE r.line_count > 0 " +
+                     "ORDER BY r.qty_kg DESC LIMIT ?";
         try (java.sql.Connection conn = DatabaseAdapter.getConnection();
              java.sql.PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, limit);
@@ -1,127 +1,319 @@
 package services;
 
 import models.Order;
+import models.OrderItem;
 import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
 
 /**
- * Minimal PDF generator without external libraries.
- * Produces a simple single-page PDF compliant with PDF 1.4 spec.
+ * Minimal PDF generator without external libraries (PDF 1.4).
+ *
+ * The document is written straight to an OutputStream: objects are emitted in
+ * order while a counting stream records their offsets for the xref table, so
+ * only one page of content is buffered at a time (its compressed length must
+ * precede the stream data). Everything that does not depend on the order,
+ * such as the header, catalog, font and xref entry templates, is encoded once.
+ *
+ * Object layout: 1 catalog, 2 page tree, 3 font, then a page and its
+ * FlateDecode content stream per page (4/5, 6/7, ...). Line items flow over
+ * as many pages as needed; the totals follow the last item.
  */
 public class PDFInvoiceGenerator {
 
-    public static byte[] generateInvoicePDF(Order order) {
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            int[] offsets = new int[6];
-
-            // Header (LF only)
-            write(baos, "%PDF-1.4\n");
-            write(baos, "%\u00E2\u00E3\u00CF\u00D3\n");
-
-            // 1: Catalog
-            offsets[1] = baos.size();
-            write(baos, "1 0 obj\n<< /Type /Catalog /Pages 2 0 R >>\nendobj\n");
-
-            // 2: Pages
-            offsets[2] = baos.size();
-            write(baos, "2 0 obj\n<< /Type /Pages /Kids [3 0 R] /Count 1 >>\nendobj\n");
-
-            // 3: Page
-            offsets[3] = baos.size();
-            write(baos, "3 0 obj\n<< /Type /Page /Parent 2 0 R /MediaBox [0 0 612 792] /Resources << /Font << /F1 4 0 R >> >> /Contents 5 0 R >>\nendobj\n");
-
-            // 4: Font
-            offsets[4] = baos.size();
-            write(baos, "4 0 obj\n<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica >>\nendobj\n");
-
-            // 5: Content stream - build into a separate buffer using LF newlines
-            java.io.ByteArrayOutputStream content = new java.io.ByteArrayOutputStream();
-            int y = 750;
-            java.util.List<String> lines = new java.util.ArrayList<>();
-            lines.add("GREEN GROCER - OFFICIAL INVOICE");
-            lines.add("----------------------------------------");
-            lines.add("Order ID: #" + order.getId());
-            lines.add("Customer: " + (order.getCustomerName() != null ? order.getCustomerName() : "Guest"));
-            lines.add("Status:   " + (order.getStatus() != null ? order.getStatus() : ""));
-            lines.add(String.format("Total:    %.2f TL", order.getTotalCost()));
-            String date = (order.getDeliveryTime() != null) ? order.getDeliveryTime().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")) : "ASAP";
-            lines.add("Delivery: " + date);
-            lines.add("");
-            lines.add("Thank you for choosing Group04!");
-
-            for (String l : lines) {
-                String esc = escape(l);
-                String lineCmd = "BT /F1 12 Tf 50 " + y + " Td (" + esc + ") Tj ET\n";
-                content.write(lineCmd.getBytes(java.nio.charset.StandardCharsets.ISO_8859_1));
-                y -= 14;
-                if (y < 40) break;
-            }
+    private static final int PAGE_WIDTH = 612;
+    private static final int PAGE_HEIGHT = 792;
+    private static final int TOP_Y = 750;
+    private static final int BOTTOM_Y = 60;
+    private static final int LEADING = 14;
 
-            byte[] contentBytes = content.toByteArray();
+    // Header lines on the first page, column header + footer on every page
+    private static final int FIRST_PAGE_HEADER_LINES = 9;
+    private static final int TABLE_HEADER_LINES = 2;
+    private static final int TOTALS_LINES = 4;
+    private static final int LINES_PER_PAGE = (TOP_Y - BOTTOM_Y) / LEADING;
 
-            offsets[5] = baos.size();
-            baos.write(("5 0 obj\n<< /Length " + contentBytes.length + " >>\nstream\n").getBytes(java.nio.charset.StandardCharsets.ISO_8859_1));
-            baos.write(contentBytes);
-            baos.write("\nendstream\nendobj\n".getBytes(java.nio.charset.StandardCharsets.ISO_8859_1));
+    private static final int COL_PRODUCT = 50;
+    private static final int COL_QTY = 300;
+    private static final int COL_PRICE = 390;
+    private static final int COL_TOTAL = 480;
 
-            // xref
-            int xrefPos = baos.size();
-            baos.write("xref\n0 6\n0000000000 65535 f \n".getBytes(java.nio.charset.StandardCharsets.ISO_8859_1));
-            for (int i = 1; i <= 5; i++) {
-                String off = String.format("%010d 00000 n \n", offsets[i]);
-                baos.write(off.getBytes(java.nio.charset.StandardCharsets.ISO_8859_1));
-            }
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final byte[] HEADER = ascii("%PDF-1.4\n%\u00E2\u00E3\u00CF\u00D3\n");
+    private static final byte[] CATALOG = ascii("1 0 obj\n<< /Type /Catalog /Pages 2 0 R >>\nendobj\n");
+    private static final byte[] FONT = ascii("3 0 obj\n<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica /Encoding /WinAnsiEncoding >>\nendobj\n");
+    private static final byte[] PAGE_PREFIX = ascii(" 0 obj\n<< /Type /Page /Parent 2 0 R /MediaBox [0 0 " + PAGE_WIDTH + " " + PAGE_HEIGHT + "] /Resources << /Font << /F1 3 0 R >> >> /Contents ");
+    private static final byte[] PAGE_SUFFIX = ascii(" 0 R >>\nendobj\n");
+    private static final byte[] STREAM_PREFIX = ascii(" 0 obj\n<< /Filter /FlateDecode /Length ");
+    private static final byte[] STREAM_START = ascii(" >>\nstream\n");
+    private static final byte[] STREAM_END = ascii("\nendstream\nendobj\n");
+    private static final byte[] XREF_FREE = ascii("0000000000 65535 f \n");
+    private static final byte[] XREF_ENTRY_SUFFIX = ascii(" 00000 n \n");
+    private static final String TABLE_HEADER =
+        text(COL_PRODUCT, "Product") + text(COL_QTY, "Qty (kg)") + text(COL_PRICE, "Unit Price") + text(COL_TOTAL, "Line Total");
 
-            baos.write(("trailer\n<< /Size 6 /Root 1 0 R >>\nstartxref\n" + xrefPos + "\n%%EOF\n").getBytes(java.nio.charset.StandardCharsets.ISO_8859_1));
+    // Deflater and buffers reused per thread; creating a Deflater per invoice costs more than compressing it
+    private static final ThreadLocal<Workspace> WORKSPACE = ThreadLocal.withInitial(Workspace::new);
+
+    /**
+     * Renders the invoice of an order, loading its line items from the database.
+     *
+     * @param order order to render
+     * @return PDF bytes, or null if the items could not be read or rendering failed
+     */
+    public static byte[] generateInvoicePDF(Order order) {
+        List<OrderItem> items = new OrderDAO().getOrderItems(order.getId());
+        if (items == null) return null; // never store an invoice without its lines
+        return generateInvoicePDF(order, items);
+    }
 
-            byte[] pdf = baos.toByteArray();
-            return pdf;
+    /**
+     * Renders an invoice into memory.
+     *
+     * @param order order to render
+     * @param items line items of the order
+     * @return PDF bytes, or null if rendering failed
+     */
+    public static byte[] generateInvoicePDF(Order order, List<OrderItem> items) {
+        try {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream(4096 + items.size() * 96);
+            writeInvoice(order, items, baos);
+            return baos.toByteArray();
         } catch (Exception e) {
             System.err.println("PDF generation failed: " + e.getMessage());
             return null;
         }
     }
 
-    private static void write(ByteArrayOutputStream baos, String s) throws Exception {
-        baos.write(s.getBytes(StandardCharsets.ISO_8859_1));
+    /**
+     * Streams an invoice to {@code out}. The stream is flushed but not closed.
+     *
+     * @param order order to render
+     * @param items line items of the order, printed in list order
+     * @param out destination
+     * @throws IOException if writing fails
+     */
+    public static void writeInvoice(Order order, List<OrderItem> items, OutputStream out) throws IOException {
+        List<List<OrderItem>> pages = paginate(items);
+        int pageCount = pages.size();
+        int objectCount = 3 + 2 * pageCount;
+        long[] offsets = new long[objectCount + 1];
+
+        CountingOutputStream pdf = new CountingOutputStream(out);
+        pdf.write(HEADER);
+
+        offsets[1] = pdf.count;
+        pdf.write(CATALOG);
+
+        offsets[2] = pdf.count;
+        StringBuilder kids = new StringBuilder(32 + pageCount * 8);
+        kids.append("2 0 obj\n<< /Type /Pages /Kids [");
+        for (int i = 0; i < pageCount; i++) {
+            if (i > 0) kids.append(' ');
+            kids.append(pageObject(i)).append(" 0 R");
+        }
+        kids.append("] /Count ").append(pageCount).append(" >>\nendobj\n");
+        pdf.write(ascii(kids.toString()));
+
+        offsets[3] = pdf.count;
+        pdf.write(FONT);
+
+        Workspace ws = WORKSPACE.get();
+        for (int i = 0; i < pageCount; i++) {
+            int pageObj = pageObject(i);
+            offsets[pageObj] = pdf.count;
+            writeInt(pdf, pageObj);
+            pdf.write(PAGE_PREFIX);
+            writeInt(pdf, pageObj + 1);
+            pdf.write(PAGE_SUFFIX);
+
+            ws.content.setLength(0);
+            writePageContent(ws.content, order, pages.get(i), i, pageCount);
+            byte[] raw = ascii(ws.content.toString());
+
+            ws.compressed.reset();
+            ws.deflater.reset();
+            ws.deflater.setInput(raw);
+            ws.deflater.finish();
+            while (!ws.deflater.finished()) {
+                int n = ws.deflater.deflate(ws.buffer);
+                ws.compressed.write(ws.buffer, 0, n);
+            }
+
+            offsets[pageObj + 1] = pdf.count;
+            writeInt(pdf, pageObj + 1);
+            pdf.write(STREAM_PREFIX);
+            writeInt(pdf, ws.compressed.size());
+            pdf.write(STREAM_START);
+            ws.compressed.writeTo(pdf);
+            pdf.write(STREAM_END);
+        }
+
+        long xrefPos = pdf.count;
+        pdf.write(ascii("xref\n0 " + (objectCount + 1) + "\n"));
+        pdf.write(XREF_FREE);
+        byte[] entry = new byte[10];
+        for (int i = 1; i <= objectCount; i++) {
+            long off = offsets[i];
+            for (int d = 9; d >= 0; d--) {
+                entry[d] = (byte) ('0' + (off % 10));
+                off /= 10;
+            }
+            pdf.write(entry);
+            pdf.write(XREF_ENTRY_SUFFIX);
+        }
+        pdf.write(ascii("trailer\n<< /Size " + (objectCount + 1) + " /Root 1 0 R >>\nstartxref\n" + xrefPos + "\n%%EOF\n"));
+        pdf.flush();
     }
 
-    private static String escape(String s) {
-        if (s == null) return "";
-        return s.replace("\\", "\\\\").replace("(", "\\(").replace(")", "\\)");
+    /**
+     * Splits the items into pages. The first page loses room to the order
+     * header and the last page must still fit the totals block.
+     */
+    private static List<List<OrderItem>> paginate(List<OrderItem> items) {
+        List<List<OrderItem>> pages = new ArrayList<>();
+        int capacity = LINES_PER_PAGE - TABLE_HEADER_LINES - FIRST_PAGE_HEADER_LINES;
+        int index = 0;
+        while (true) {
+            int remaining = items.size() - index;
+            if (remaining + TOTALS_LINES <= capacity) {
+                pages.add(items.subList(index, items.size()));
+                return pages;
+            }
+            // Leave at least the totals for the next page if they do not fit here
+            int take = Math.min(remaining, capacity);
+            pages.add(items.subList(index, index + take));
+            index += take;
+            capacity = LINES_PER_PAGE - TABLE_HEADER_LINES;
+        }
     }
 
-    private static String buildContent(Order order) {
-        DateTimeFormatter dtf = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static void writePageContent(StringBuilder sb, Order order, List<OrderItem> items,
+                                         int pageIndex, int pageCount) {
+        sb.append("BT\n/F1 11 Tf\n");
+        int y = TOP_Y;
+
+        if (pageIndex == 0) {
+            String date = (order.getDeliveryTime() != null) ? order.getDeliveryTime().format(DATE_FORMAT) : "ASAP";
+            cell(sb, COL_PRODUCT, y, "GREEN GROCER - OFFICIAL INVOICE"); y -= LEADING;
+            cell(sb, COL_PRODUCT, y, "----------------------------------------"); y -= LEADING;
+            cell(sb, COL_PRODUCT, y, "Order ID: #" + order.getId()); y -= LEADING;
+            cell(sb, COL_PRODUCT, y, "Customer: " + (order.getCustomerName() != null ? order.getCustomerName() : "Guest")); y -= LEADING;
+            cell(sb, COL_PRODUCT, y, "Status:   " + (order.getStatus() != null ? order.getStatus() : "")); y -= LEADING;
+            cell(sb, COL_PRODUCT, y, "Delivery: " + date); y -= LEADING;
+            y -= LEADING * (FIRST_PAGE_HEADER_LINES - 6);
+        }
+
+        sb.append("1 0 0 1 0 ").append(y).append(" Tm\n").append(TABLE_HEADER);
+        y -= LEADING * TABLE_HEADER_LINES;
+
+        for (OrderItem item : items) {
+            cell(sb, COL_PRODUCT, y, item.getProductName() != null ? item.getProductName() : "Product #" + item.getProductId());
+            cell(sb, COL_QTY, y, item.getQuantity());
+            cell(sb, COL_PRICE, y, item.getPricePerUnit());
+            cell(sb, COL_TOTAL, y, item.getTotalPrice());
+            y -= LEADING;
+        }
+
+        if (pageIndex == pageCount - 1) {
+            y -= LEADING;
+            cell(sb, COL_PRICE, y, "Total:");
+            cell(sb, COL_TOTAL, y, order.getTotalCost());
+            sb.append("( TL) Tj\n");
+            y -= LEADING * 2;
+            cell(sb, COL_PRODUCT, y, "Thank you for choosing Group04!");
+        }
+
+        cell(sb, COL_TOTAL, BOTTOM_Y - LEADING * 2, "Page " + (pageIndex + 1) + " of " + pageCount);
+        sb.append("ET\n");
+    }
+
+    // Absolute text position, independent of the previous line
+    private static void cell(StringBuilder sb, int x, int y, String s) {
+        sb.append("1 0 0 1 ").append(x).append(' ').append(y).append(" Tm (");
+        escape(sb, s);
+        sb.append(") Tj\n");
+    }
+
+    // Table header text relative to the current line (positioned with Tm before use)
+    private static String text(int x, String s) {
         StringBuilder sb = new StringBuilder();
-        
-        sb.append("BT\r\n"); // Begin Text
-        sb.append("/F1 14 Tf\r\n"); // Font Helvetica, Size 14
-        
-        int x = 50;
-        int y = 750;
-        int leading = 20;
-
-        // Draw Lines
-        writeText(sb, x, y, "GREEN GROCER - OFFICIAL INVOICE"); y -= leading * 2;
-        writeText(sb, x, y, "----------------------------------------"); y -= leading;
-        writeText(sb, x, y, "Order ID: #" + order.getId()); y -= leading;
-        writeText(sb, x, y, "Customer: " + (order.getCustomerName() != null ? order.getCustomerName() : "Guest")); y -= leading;
-        writeText(sb, x, y, "Status:   " + order.getStatus()); y -= leading;
-        writeText(sb, x, y, String.format("Total:    %.2f TL", order.getTotalCost())); y -= leading;
-        
-        String date = (order.getDeliveryTime() != null) ? order.getDeliveryTime().format(dtf) : "ASAP";
-        writeText(sb, x, y, "Delivery: " + date); y -= leading * 2;
-        
-        writeText(sb, x, y, "Thank you for choosing Group04!");
-        
-        sb.append("ET\r\n"); // End Text
+        sb.append(x).append(" 0 Td (");
+        escape(sb, s);
+        sb.append(") Tj ").append(-x).append(" 0 Td\n");
         return sb.toString();
     }
 
-    private static void writeText(StringBuilder sb, int x, int y, String text) {
-        sb.append(String.format("1 0 0 1 %d %d Tm\r\n", x, y)); // Move text cursor
-        sb.append("(").append(escape(text)).append(") Tj\r\n"); // Show text
+    private static void escape(StringBuilder sb, String s) {
+        if (s == null) return;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\\' || c == '(' || c == ')') sb.append('\\');
+            sb.append(c);
+        }
+    }
+
+    // Amount with two decimals, appended without String.format; the hot path of every line item
+    private static void cell(StringBuilder sb, int x, int y, double value) {
+        sb.append("1 0 0 1 ").append(x).append(' ').append(y).append(" Tm (");
+        long cents = Math.round(value * 100);
+        if (cents < 0) {
+            sb.append('-');
+            cents = -cents;
+        }
+        sb.append(cents / 100).append('.');
+        long frac = cents % 100;
+        if (frac < 10) sb.append('0');
+        sb.append(frac).append(") Tj\n");
+    }
+
+    private static int pageObject(int pageIndex) {
+        return 4 + 2 * pageIndex;
+    }
+
+    private static void writeInt(OutputStream out, long value) throws IOException {
+        out.write(ascii(Long.toString(value)));
+    }
+
+    // Helvetica uses WinAnsiEncoding; characters outside Latin-1 become '?'
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static final class Workspace {
+        final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        final StringBuilder content = new StringBuilder(8192);
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream(4096);
+        final byte[] buffer = new byte[4096];
+    }
+
+    /**
+     * Pass-through stream that tracks the byte offset for the xref table.
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+        long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
     }
-}
\ No newline at end of file
+}
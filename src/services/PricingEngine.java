@@ -0,0 +1,232 @@
+package services;
+
+import java.util.Arrays;
+
+/**
+ * Cart pricing in whole minor units (kuruş) and grams.
+ *
+ * Covers the threshold surcharge on each line and the summary the cart screen
+ * shows: 18% VAT, shipping (free from 150 ₺ or with FREESHIP), the automatic
+ * 5% discount above 200 ₺ and the percentage of an applied coupon (the rate
+ * CouponDAO returns, e.g. SAVE20 or the LOYAL5 loyalty coupon). Every
+ * component is rounded half-up to the kuruş once, so the parts always add up
+ * to the total shown.
+ *
+ * The threshold rule is precomputed per product as a tier: the grams that can
+ * still be sold at the base price before stock drops to the threshold. A line
+ * then costs {@code price * (qty + max(0, qty - tier))}, with no branches.
+ * A whole cart is priced in one call from a reusable {@link Lines} buffer
+ * into a reusable {@link Quote}; once the buffer has grown to the cart size,
+ * pricing allocates nothing. PricingBenchmark (bench source root) checks the
+ * results against the previous double arithmetic and measures both.
+ *
+ * @author Group04
+ * @version 1.0
+ */
+public final class PricingEngine {
+
+    /** Tier of a product without surcharge (no threshold configured). */
+    public static final long NO_TIER = Long.MAX_VALUE;
+
+    static final long VAT_BP = 1_800;                  // 18%
+    static final long SHIPPING_MINOR = 2_000;          // 20 ₺
+    static final long FREE_SHIPPING_MINOR = 15_000;    // free delivery from 150 ₺
+    static final long PROMO_ABOVE_MINOR = 20_000;      // automatic discount above 200 ₺
+    static final long PROMO_BP = 500;                  // 5%
+
+    private static final long BP = 10_000;
+
+    private PricingEngine() { }
+
+    /**
+     * Cart lines as parallel arrays, reused between calls.
+     */
+    public static final class Lines {
+        private int size;
+        private int[] productId = new int[8];
+        private long[] unitMinor = new long[8];
+        private long[] tierGrams = new long[8];
+        private long[] qtyGrams = new long[8];
+        private long[] totalMinor = new long[8];
+        private boolean[] priced = new boolean[8];
+
+        public void clear() {
+            size = 0;
+        }
+
+        /**
+         * @param productId product
+         * @param unitMinor base price per kg in kuruş
+         * @param tierGrams see {@link PricingEngine#tierGrams}
+         * @param qtyGrams quantity in grams
+         */
+        public void add(int productId, long unitMinor, long tierGrams, long qtyGrams) {
+            if (size == this.productId.length) grow();
+            this.productId[size] = productId;
+            this.unitMinor[size] = unitMinor;
+            this.tierGrams[size] = tierGrams;
+            this.qtyGrams[size] = qtyGrams;
+            this.priced[size] = false;
+            size++;
+        }
+
+        /**
+         * Adds a line whose price is already known and is not recomputed
+         * (a cart line restored from its saved total).
+         *
+         * @param productId product
+         * @param qtyGrams quantity in grams
+         * @param totalMinor price of the line in kuruş
+         */
+        public void addPriced(int productId, long qtyGrams, long totalMinor) {
+            add(productId, 0, NO_TIER, qtyGrams);
+            this.priced[size - 1] = true;
+            this.totalMinor[size - 1] = totalMinor;
+        }
+
+        public int size() { return size; }
+        public int getProductId(int i) { return productId[i]; }
+        public long getQtyGrams(int i) { return qtyGrams[i]; }
+
+        /**
+         * @return price of line {@code i} in kuruş, as of the last {@link PricingEngine#price} call
+         */
+        public long getTotalMinor(int i) { return totalMinor[i]; }
+
+        private void grow() {
+            int n = productId.length * 2;
+            productId = Arrays.copyOf(productId, n);
+            unitMinor = Arrays.copyOf(unitMinor, n);
+            tierGrams = Arrays.copyOf(tierGrams, n);
+            qtyGrams = Arrays.copyOf(qtyGrams, n);
+            totalMinor = Arrays.copyOf(totalMinor, n);
+            priced = Arrays.copyOf(priced, n);
+        }
+    }
+
+    /**
+     * Price summary of a cart. All amounts in kuruş; the double getters are for display.
+     */
+    public static final class Quote {
+        long subtotal;
+        long vat;
+        long shipping;
+        long promoDiscount;
+        long couponDiscount;
+        long total;
+        boolean freeShippingThresholdMet;
+
+        public long getSubtotalMinor() { return subtotal; }
+        public long getTotalMinor() { return total; }
+
+        public double getSubtotal() { return fromMinor(subtotal); }
+        public double getVat() { return fromMinor(vat); }
+        public double getShipping() { return fromMinor(shipping); }
+        public double getPromoDiscount() { return fromMinor(promoDiscount); }
+        public double getCouponDiscount() { return fromMinor(couponDiscount); }
+        public double getDiscount() { return fromMinor(promoDiscount + couponDiscount); }
+        public double getTotal() { return fromMinor(total); }
+
+        /**
+         * @return true if the subtotal alone qualifies for free delivery
+         */
+        public boolean isFreeShippingThresholdMet() { return freeShippingThresholdMet; }
+
+        /**
+         * @return amount still missing for free delivery (0 once reached)
+         */
+        public double getRemainingForFreeShipping() {
+            return fromMinor(Math.max(0, FREE_SHIPPING_MINOR - subtotal));
+        }
+    }
+
+    /**
+     * Grams of a product that are sold at the base price before the stock
+     * reaches its threshold; everything beyond costs double. As the cart has
+     * always done, nothing is surcharged without a threshold ({@code <= 0})
+     * or when the stock is already at or below it.
+     *
+     * @param stockKg current stock
+     * @param thresholdKg product threshold
+     * @return tier in grams, or {@link #NO_TIER}
+     */
+    public static long tierGrams(double stockKg, double thresholdKg) {
+        if (thresholdKg <= 0 || stockKg <= thresholdKg) return NO_TIER;
+        return toGrams(stockKg) - toGrams(thresholdKg);
+    }
+
+    /**
+     * @param unitMinor base price per kg in kuruş
+     * @param tierGrams see {@link #tierGrams}
+     * @param qtyGrams quantity in grams
+     * @return price of the line in kuruş
+     */
+    public static long linePrice(long unitMinor, long tierGrams, long qtyGrams) {
+        long surchargedGrams = Math.max(0, qtyGrams - tierGrams);
+        return (unitMinor * (qtyGrams + surchargedGrams) + 500) / 1000;
+    }
+
+    /**
+     * Prices every line of a cart and its summary in one pass.
+     *
+     * @param lines cart lines; their totals are filled in
+     * @param couponRatePercent applied coupon rate in percent (0 if none)
+     * @param freeShipping true if a FREESHIP coupon is applied
+     * @param out receives the summary
+     * @return {@code out}
+     */
+    public static Quote price(Lines lines, double couponRatePercent, boolean freeShipping, Quote out) {
+        long subtotal = 0;
+        for (int i = 0; i < lines.size; i++) {
+            if (!lines.priced[i]) {
+                long surchargedGrams = Math.max(0, lines.qtyGrams[i] - lines.tierGrams[i]);
+                lines.totalMinor[i] = (lines.unitMinor[i] * (lines.qtyGrams[i] + surchargedGrams) + 500) / 1000;
+            }
+            subtotal += lines.totalMinor[i];
+        }
+        return summarize(subtotal, couponRatePercent, freeShipping, out);
+    }
+
+    /**
+     * Computes the summary for an already known subtotal.
+     *
+     * @param subtotalMinor sum of the line prices in kuruş
+     * @param couponRatePercent applied coupon rate in percent (0 if none)
+     * @param freeShipping true if a FREESHIP coupon is applied
+     * @param out receives the summary
+     * @return {@code out}
+     */
+    public static Quote summarize(long subtotalMinor, double couponRatePercent, boolean freeShipping, Quote out) {
+        out.subtotal = subtotalMinor;
+        out.vat = percentOf(subtotalMinor, VAT_BP);
+        out.freeShippingThresholdMet = subtotalMinor >= FREE_SHIPPING_MINOR;
+        out.shipping = (freeShipping || out.freeShippingThresholdMet) ? 0 : SHIPPING_MINOR;
+        out.promoDiscount = (subtotalMinor > PROMO_ABOVE_MINOR) ? percentOf(subtotalMinor, PROMO_BP) : 0;
+        out.couponDiscount = percentOf(subtotalMinor, Math.round(couponRatePercent * 100));
+        out.total = subtotalMinor + out.vat + out.shipping - out.promoDiscount - out.couponDiscount;
+        return out;
+    }
+
+    /**
+     * @return amount in kuruş, rounded half-up
+     */
+    public static long toMinor(double amount) {
+        return Math.round(amount * 100.0);
+    }
+
+    public static double fromMinor(long minor) {
+        return minor / 100.0;
+    }
+
+    /**
+     * @return quantity in grams, rounded half-up
+     */
+    public static long toGrams(double kg) {
+        return Math.round(kg * 1000.0);
+    }
+
+    // amount * basisPoints / 10000, rounded half-up (amounts are never negative)
+    private static long percentOf(long amountMinor, long basisPoints) {
+        return (amountMinor * basisPoints + BP / 2) / BP;
+    }
+}
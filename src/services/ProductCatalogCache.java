@@ -0,0 +1,118 @@
+package services;
+
+import models.Product;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory cache of the active product catalog.
+ *
+ * The catalog is read from the database once and served from memory until a
+ * write invalidates or patches it:
+ * - ProductDAO add / update / delete invalidate the whole catalog
+ * - OrderDAO order placement and cancellation patch stock in place
+ *
+ * Every change bumps {@link #getVersion()}, so screens can skip redrawing when
+ * nothing changed since their last render. Read the version BEFORE calling
+ * {@link #getAllProducts()} so a concurrent change is never missed.
+ *
+ * @author Group04
+ * @version 1.0
+ */
+public class ProductCatalogCache {
+
+    private static final ProductDAO productDAO = new ProductDAO();
+
+    // Guarded by the class lock; null means "not loaded"
+    private static List<Product> products = null;
+    private static Map<Integer, Product> byId = Collections.emptyMap();
+    private static volatile long version = 0;
+
+    /**
+     * Returns all active products sorted by name.
+     * Only the first call after an invalidation hits the database; a failed
+     * load is not cached, so the next call tries again.
+     *
+     * @return copies of the cached products, safe to modify
+     * @throws IllegalStateException if the catalog could not be loaded
+     */
+    public static synchronized List<Product> getAllProducts() {
+        if (!load()) throw new IllegalStateException("Products could not be loaded from the database.");
+        List<Product> copy = new ArrayList<>(products.size());
+        for (Product p : products) {
+            copy.add(copyOf(p));
+        }
+        return copy;
+    }
+
+    /**
+     * @param productId product id
+     * @return copy of the cached product, or null if not active or the catalog could not be loaded
+     */
+    public static synchronized Product getProduct(int productId) {
+        if (!load()) return null;
+        Product p = byId.get(productId);
+        return (p != null) ? copyOf(p) : null;
+    }
+
+    // Loads the catalog if needed; false if the database could not be read
+    private static boolean load() {
+        if (products != null) return true;
+        List<Product> loaded = productDAO.getAllProducts();
+        if (loaded == null) return false;
+        Map<Integer, Product> index = new HashMap<>();
+        for (Product p : loaded) {
+            index.put(p.getId(), p);
+        }
+        products = loaded;
+        byId = index;
+        return true;
+    }
+
+    private static Product copyOf(Product p) {
+        Product copy = new Product(p.getId(), p.getName(), p.getType(), p.getPrice(),
+                                   p.getStock(), p.getThreshold(), p.getImage());
+        copy.setImagePath(p.getImagePath());
+        return copy;
+    }
+
+    /**
+     * Drops the cached catalog; the next read reloads it from the database.
+     */
+    public static synchronized void invalidate() {
+        products = null;
+        byId = Collections.emptyMap();
+        version++;
+    }
+
+    /**
+     * Applies a stock change that was already committed to the database.
+     * Falls back to a full invalidation if the product is not cached.
+     *
+     * @param productId product id
+     * @param deltaKg amount added to stock (negative for a sale)
+     */
+    public static synchronized void adjustStock(int productId, double deltaKg) {
+        if (products == null) {
+            version++;
+            return;
+        }
+        Product p = byId.get(productId);
+        if (p == null) {
+            invalidate();
+            return;
+        }
+        p.setStock(Math.max(0.0, p.getStock() + deltaKg));
+        version++;
+    }
+
+    /**
+     * @return a counter that changes whenever the catalog content changes
+     */
+    public static long getVersion() {
+        return version;
+    }
+}
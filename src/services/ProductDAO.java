@@ -3,13 +3,18 @@ package services;
 import models.Product;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.InputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.file.Files;
+import services.ThumbnailService.Rendition;
 
 /**
  * Data Access Object for Products.
@@ -18,39 +23,192 @@ import java.io.IOException;
  */
 public class ProductDAO {
 
+    /**
+     * Returns active products WITHOUT image data (metadata only).
+     * Images are loaded separately through {@link ProductImageCache} / {@link #getProductImage(int)}.
+     *
+     * @return products sorted by name, or null if the query failed
+     */
     public List<Product> getAllProducts() {
         List<Product> products = new ArrayList<>();
-        // Fetch only active products
-        String sql = "SELECT * FROM productinfo WHERE is_active = 1 ORDER BY name ASC";
+        // Fetch only active products; image_blob is deliberately not selected
+        String sql = "SELECT id, name, type, price, stock_kg, threshold_kg FROM productinfo WHERE is_active = 1 ORDER BY name ASC";
 
         try (Connection conn = DatabaseAdapter.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql);
              ResultSet rs = pstmt.executeQuery()) {
 
             while (rs.next()) {
-                String typeStr = rs.getString("type");
-                String prodName = rs.getString("name");
-                
-                // Prefer DB blob, but fallback to packaged resource images (resources/images)
-                byte[] img = rs.getBytes("image_blob");
-                if (img == null || img.length == 0) {
-                    img = loadResourceImage(prodName, typeStr);
+                products.add(mapRowToProduct(rs));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+        return products;
+    }
+
+    private static final String PRODUCT_STREAM_SQL =
+        "SELECT id, name, type, price, stock_kg, threshold_kg FROM productinfo WHERE is_active = 1 ORDER BY id";
+
+    /**
+     * Streams the active products (metadata only) one row at a time
+     * (see {@link StreamingQuery}).
+     *
+     * @param action called for every product, on the calling thread
+     * @return false if the query failed
+     */
+    public boolean forEachProduct(Consumer<? super Product> action) {
+        return StreamingQuery.forEach(PRODUCT_STREAM_SQL, new Object[0], ProductDAO::mapRowToProduct, action);
+    }
+
+    /**
+     * Stream variant of {@link #forEachProduct}; close it to release the connection.
+     */
+    public Stream<Product> streamProducts() {
+        return StreamingQuery.stream(PRODUCT_STREAM_SQL, new Object[0], ProductDAO::mapRowToProduct);
+    }
+
+    private static Product mapRowToProduct(ResultSet rs) throws SQLException {
+        return new Product(
+            rs.getInt("id"),
+            rs.getString("name"),
+            rs.getString("type"),
+            rs.getDouble("price"),
+            rs.getDouble("stock_kg"),
+            rs.getDouble("threshold_kg"),
+            (byte[]) null
+        );
+    }
+
+    /**
+     * Loads the SMALL (card sized) image of a single product.
+     *
+     * @param productId product id
+     * @return image bytes, or null if none found
+     */
+    public byte[] getProductImage(int productId) {
+        return getProductImage(productId, Rendition.SMALL);
+    }
+
+    /**
+     * Loads one rendition of a product image.
+     * Falls back to the original blob when the rendition was not generated yet,
+     * and to packaged resource images (resources/images) when there is no blob.
+     *
+     * @param productId product id
+     * @param rendition requested rendition
+     * @return image bytes, or null if none found
+     */
+    public byte[] getProductImage(int productId, Rendition rendition) {
+        String sql = "SELECT name, type, " + imageColumn(rendition) + " AS img FROM productinfo WHERE id = ?";
+        try (Connection conn = DatabaseAdapter.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, productId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return readImage(rs);
                 }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * Loads the SMALL images of several products in one query (used to prefetch visible tiles).
+     *
+     * @param productIds product ids
+     * @return see {@link #getProductImages(Collection, Rendition)}
+     */
+    public Map<Integer, byte[]> getProductImages(Collection<Integer> productIds) {
+        return getProductImages(productIds, Rendition.SMALL);
+    }
+
+    /**
+     * Loads one rendition of several product images in one query.
+     *
+     * @param productIds product ids
+     * @param rendition requested rendition
+     * @return map of product id to image bytes for every product row read
+     *         (null value if that product has no image; unknown ids are absent),
+     *         or null if the query failed
+     */
+    public Map<Integer, byte[]> getProductImages(Collection<Integer> productIds, Rendition rendition) {
+        Map<Integer, byte[]> result = new HashMap<>();
+        if (productIds == null || productIds.isEmpty()) return result;
 
-                products.add(new Product(
-                    rs.getInt("id"),
-                    prodName,
-                    typeStr,                    
-                    rs.getDouble("price"),     
-                    rs.getDouble("stock_kg"),
-                    rs.getDouble("threshold_kg"),
-                    img
-                ));
+        StringBuilder placeholders = new StringBuilder();
+        for (int i = 0; i < productIds.size(); i++) {
+            placeholders.append(i == 0 ? "?" : ",?");
+        }
+        String sql = "SELECT id, name, type, " + imageColumn(rendition) + " AS img FROM productinfo WHERE id IN (" + placeholders + ")";
+
+        try (Connection conn = DatabaseAdapter.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int idx = 1;
+            for (Integer id : productIds) {
+                pstmt.setInt(idx++, id);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    result.put(rs.getInt("id"), readImage(rs));
+                }
             }
         } catch (SQLException e) {
             e.printStackTrace();
+            return null;
         }
-        return products;
+        return result;
+    }
+
+    /**
+     * Product ids whose image renditions have not been generated yet
+     * (used by the thumbnail backfill).
+     */
+    public List<Integer> getProductIdsMissingThumbnails() {
+        List<Integer> ids = new ArrayList<>();
+        String sql = "SELECT id FROM productinfo WHERE image_thumb_small IS NULL OR image_thumb_medium IS NULL";
+        try (Connection conn = DatabaseAdapter.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) ids.add(rs.getInt("id"));
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return ids;
+    }
+
+    /**
+     * Stores the generated renditions next to the original image.
+     */
+    public boolean updateThumbnails(int productId, byte[] small, byte[] medium) {
+        String sql = "UPDATE productinfo SET image_thumb_small = ?, image_thumb_medium = ? WHERE id = ?";
+        try (Connection conn = DatabaseAdapter.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setBytes(1, small);
+            pstmt.setBytes(2, medium);
+            pstmt.setInt(3, productId);
+            return pstmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    // Rendition column, falling back to the original blob until renditions exist
+    private static String imageColumn(Rendition rendition) {
+        if (rendition == Rendition.ORIGINAL) return "image_blob";
+        return "COALESCE(" + rendition.getColumn() + ", image_blob)";
+    }
+
+    private byte[] readImage(ResultSet rs) throws SQLException {
+        byte[] img = rs.getBytes("img");
+        if (img == null || img.length == 0) {
+            img = loadResourceImage(rs.getString("name"), rs.getString("type"));
+        }
+        return img;
     }
 
     // Attempt to load product image from packaged resources (resources/images/{fruits,vegetables})
@@ -123,6 +281,9 @@ public class ProductDAO {
         } catch (SQLException e) {
             e.printStackTrace();
             return false;
+        } finally {
+            ProductCatalogCache.invalidate();
+            StockReservations.invalidate(productId);
         }
     }
 
@@ -134,7 +295,7 @@ public class ProductDAO {
         String sql = "INSERT INTO productinfo (name, type, price, stock_kg, threshold_kg, image_blob, is_active) VALUES (?, ?, ?, ?, ?, ?, 1)";
         
         try (Connection conn = DatabaseAdapter.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             
             pstmt.setString(1, product.getName());
             pstmt.setString(2, product.getType()); 
@@ -142,25 +303,45 @@ public class ProductDAO {
             pstmt.setDouble(4, product.getStock());
             pstmt.setDouble(5, product.getThreshold());
             
-            if (imageFile != null && imageFile.exists()) {
-                FileInputStream fis = new FileInputStream(imageFile);
-                pstmt.setBinaryStream(6, fis, (int) imageFile.length());
+            byte[] imageBytes = readImageFile(imageFile);
+            if (imageBytes != null) {
+                pstmt.setBytes(6, imageBytes);
             } else {
                 pstmt.setNull(6, java.sql.Types.BLOB);
             }
             
-            return pstmt.executeUpdate() > 0;
+            if (pstmt.executeUpdate() == 0) return false;
+
+            // Render card/preview sized renditions in the background
+            if (imageBytes != null) {
+                try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                    if (keys.next()) ThumbnailService.submit(keys.getInt(1), imageBytes);
+                }
+            }
+            return true;
             
-        } catch (SQLException | FileNotFoundException e) {
+        } catch (SQLException | IOException e) {
             e.printStackTrace();
             return false;
+        } finally {
+            ProductCatalogCache.invalidate();
         }
     }
 
     public boolean updateProduct(Product product, File imageFile) {
+        byte[] imageBytes;
+        try {
+            imageBytes = readImageFile(imageFile);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+
         String sql;
-        if (imageFile != null) {
-            sql = "UPDATE productinfo SET name=?, type=?, price=?, stock_kg=?, threshold_kg=?, image_blob=? WHERE id=?";
+        if (imageBytes != null) {
+            // Old renditions are cleared; the new ones are rendered in the background
+            sql = "UPDATE productinfo SET name=?, type=?, price=?, stock_kg=?, threshold_kg=?, image_blob=?, "
+                + "image_thumb_small=NULL, image_thumb_medium=NULL WHERE id=?";
         } else {
             sql = "UPDATE productinfo SET name=?, type=?, price=?, stock_kg=?, threshold_kg=? WHERE id=?";
         }
@@ -174,26 +355,39 @@ public class ProductDAO {
             pstmt.setDouble(4, product.getStock());
             pstmt.setDouble(5, product.getThreshold());
             
-            if (imageFile != null && imageFile.exists()) {
-                FileInputStream fis = new FileInputStream(imageFile);
-                pstmt.setBinaryStream(6, fis, (int) imageFile.length());
+            if (imageBytes != null) {
+                pstmt.setBytes(6, imageBytes);
                 pstmt.setInt(7, product.getId());
             } else {
                 pstmt.setInt(6, product.getId());
             }
 
-            return pstmt.executeUpdate() > 0;
+            boolean updated = pstmt.executeUpdate() > 0;
+            if (updated && imageBytes != null) {
+                ThumbnailService.submit(product.getId(), imageBytes);
+            }
+            return updated;
             
-        } catch (SQLException | FileNotFoundException e) {
+        } catch (SQLException e) {
             e.printStackTrace();
             return false;
+        } finally {
+            // The caller may have edited the cached Product object already; always reload
+            ProductCatalogCache.invalidate();
+            ProductImageCache.invalidate(product.getId());
+            StockReservations.invalidate(product.getId());
         }
     }
 
+    // Reads the uploaded image file, or returns null if none was chosen
+    private byte[] readImageFile(File imageFile) throws IOException {
+        if (imageFile == null || !imageFile.exists()) return null;
+        return Files.readAllBytes(imageFile.toPath());
+    }
+
     public boolean deleteProduct(int productId) {
-        Connection conn = null;
-        try {
-            conn = DatabaseAdapter.getConnection();
+        // Connection is closed (returned to the pool) on every path
+        try (Connection conn = DatabaseAdapter.getConnection()) {
             if (conn == null) return false;
 
             // Try hard delete first
@@ -216,6 +410,10 @@ public class ProductDAO {
         } catch (SQLException e) {
             e.printStackTrace();
             return false;
+        } finally {
+            ProductCatalogCache.invalidate();
+            ProductImageCache.invalidate(productId);
+            StockReservations.invalidate(productId);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,161 @@
+package services;
+
+import services.ThumbnailService.Rendition;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of raw product image bytes, keyed by product id and rendition.
+ *
+ * The catalog query no longer carries image data; images are fetched here on
+ * first use (one row per miss) or in bulk with {@link #prefetch(Collection)}
+ * for the tiles about to be shown. The cache is LRU and limited by the total
+ * number of bytes it holds. Products without any image are remembered too, so
+ * the classpath fallback in ProductDAO is not probed again for them; a failed
+ * query caches nothing.
+ * Cards use the SMALL rendition, so a cache entry is typically a few KB.
+ *
+ * @author Group04
+ * @version 1.0
+ */
+public class ProductImageCache {
+
+    private static final long MAX_BYTES = Long.getLong("greengrocer.imageCacheBytes", 32L * 1024 * 1024);
+    private static final byte[] NO_IMAGE = new byte[0];
+
+    private static final ProductDAO productDAO = new ProductDAO();
+
+    // Guarded by the class lock
+    private static final LinkedHashMap<Long, byte[]> images = new LinkedHashMap<>(64, 0.75f, true);
+    private static long totalBytes = 0;
+
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Returns the card-sized (SMALL) image for a product, loading it on a miss.
+     *
+     * @param productId product id
+     * @return image bytes, or null if the product has no image
+     */
+    public static byte[] getImage(int productId) {
+        return getImage(productId, Rendition.SMALL);
+    }
+
+    /**
+     * Returns one rendition of a product image, loading it from the database on a miss.
+     *
+     * @param productId product id
+     * @param rendition requested rendition
+     * @return image bytes, or null if the product has no image
+     */
+    public static byte[] getImage(int productId, Rendition rendition) {
+        long key = key(productId, rendition);
+        byte[] cached;
+        synchronized (ProductImageCache.class) {
+            cached = images.get(key);
+        }
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached.length == 0 ? null : cached;
+        }
+
+        misses.incrementAndGet();
+        Map<Integer, byte[]> loaded = productDAO.getProductImages(List.of(productId), rendition);
+        // Nothing is remembered when the query failed or the product row is gone
+        if (loaded == null || !loaded.containsKey(productId)) return null;
+        byte[] image = loaded.get(productId);
+        put(key, image);
+        return image;
+    }
+
+    /**
+     * Looks a rendition up without ever touching the database (safe on the FX thread).
+     *
+     * @param productId product id
+     * @param rendition requested rendition
+     * @return cached bytes, an empty array if the product is known to have no
+     *         image, or null if it is not cached
+     */
+    public static byte[] peek(int productId, Rendition rendition) {
+        byte[] cached;
+        synchronized (ProductImageCache.class) {
+            cached = images.get(key(productId, rendition));
+        }
+        if (cached != null) hits.incrementAndGet();
+        return cached;
+    }
+
+    /**
+     * Loads every not-yet-cached SMALL image of the given products with one query.
+     * Call it with the ids of the tiles about to be displayed.
+     *
+     * @param productIds ids to warm up
+     */
+    public static void prefetch(Collection<Integer> productIds) {
+        List<Integer> missing = new ArrayList<>();
+        synchronized (ProductImageCache.class) {
+            for (Integer id : productIds) {
+                if (id != null && !images.containsKey(key(id, Rendition.SMALL))) missing.add(id);
+            }
+        }
+        if (missing.isEmpty()) return;
+
+        misses.addAndGet(missing.size());
+        Map<Integer, byte[]> loaded = productDAO.getProductImages(missing, Rendition.SMALL);
+        if (loaded == null) return; // query failed; the tiles load one by one instead
+        for (Map.Entry<Integer, byte[]> e : loaded.entrySet()) {
+            put(key(e.getKey(), Rendition.SMALL), e.getValue());
+        }
+    }
+
+    /**
+     * Forget every cached rendition of one product (after its image was changed).
+     */
+    public static synchronized void invalidate(int productId) {
+        for (Rendition r : Rendition.values()) {
+            byte[] old = images.remove(key(productId, r));
+            if (old != null) totalBytes -= old.length;
+        }
+    }
+
+    public static synchronized void clear() {
+        images.clear();
+        totalBytes = 0;
+    }
+
+    /**
+     * @return hit/miss and size summary for diagnostics
+     */
+    public static synchronized String describeStats() {
+        return String.format("ProductImageCache[entries=%d, bytes=%d/%d, hits=%d, misses=%d]",
+            images.size(), totalBytes, MAX_BYTES, hits.get(), misses.get());
+    }
+
+    private static long key(int productId, Rendition rendition) {
+        return ((long) productId << 8) | rendition.ordinal();
+    }
+
+    private static synchronized void put(long key, byte[] data) {
+        byte[] value = (data == null || data.length == 0) ? NO_IMAGE : data;
+        if (value.length > MAX_BYTES) return; // never let one image flush the whole cache
+
+        byte[] old = images.put(key, value);
+        if (old != null) totalBytes -= old.length;
+        totalBytes += value.length;
+
+        // Evict least recently used images until we are back under budget
+        Iterator<Map.Entry<Long, byte[]>> it = images.entrySet().iterator();
+        while (totalBytes > MAX_BYTES && it.hasNext()) {
+            Map.Entry<Long, byte[]> eldest = it.next();
+            if (eldest.getKey() == key) continue;
+            totalBytes -= eldest.getValue().length;
+            it.remove();
+        }
+    }
+}
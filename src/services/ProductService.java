@@ -8,14 +8,14 @@ import java.util.stream.Collectors;
  * Product Service - Database Wrapper.
  * 
  * All products are fetched from database with images stored as BLOBs.
+ * Reads go through {@link ProductCatalogCache}, so repeated calls do not
+ * hit the database until the catalog changes.
  * 
  * @author Group04
  * @version 1.0
  */
 public class ProductService {
     
-    private static ProductDAO productDAO = new ProductDAO();
-    
     /**
      * Get all vegetables from database.
      * Filters products with type="vegetable" and sorts by name.
@@ -23,7 +23,7 @@ public class ProductService {
      * @return List of vegetable products
      */
     public static List<Product> getVegetables() {
-        return productDAO.getAllProducts().stream()
+        return ProductCatalogCache.getAllProducts().stream()
             .filter(p -> "vegetable".equalsIgnoreCase(p.getType()))
             .sorted((p1, p2) -> p1.getName().compareToIgnoreCase(p2.getName()))
             .collect(Collectors.toList());
@@ -36,7 +36,7 @@ public class ProductService {
      * @return List of fruit products
      */
     public static List<Product> getFruits() {
-        return productDAO.getAllProducts().stream()
+        return ProductCatalogCache.getAllProducts().stream()
             .filter(p -> "fruit".equalsIgnoreCase(p.getType()))
             .sorted((p1, p2) -> p1.getName().compareToIgnoreCase(p2.getName()))
             .collect(Collectors.toList());
@@ -47,9 +47,20 @@ public class ProductService {
      * Returns all active products sorted by name.
      * 
      * @return List of all products
+     * @throws IllegalStateException if the products could not be loaded
      */
     public static List<Product> getAllProducts() {
-        return productDAO.getAllProducts();
+        return ProductCatalogCache.getAllProducts();
+    }
+
+    /**
+     * Catalog version; changes whenever products or stock change.
+     * Read it before {@link #getAllProducts()} to detect changes reliably.
+     *
+     * @return current catalog version
+     */
+    public static long getCatalogVersion() {
+        return ProductCatalogCache.getVersion();
     }
     
     /**
@@ -0,0 +1,163 @@
+package services;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Maintains the pre-aggregated revenue tables read by the analytics tab.
+ *
+ * revenue_daily holds one row per requested delivery day (order count,
+ * revenue, and the delivered share of both); revenue_product holds one row
+ * per product (revenue, kg sold, number of order lines). Cancelled orders
+ * are not counted. OrderDAO updates the rows inside the same transaction that
+ * creates, cancels or delivers an order, so charts read a handful of rows
+ * instead of grouping the whole order history.
+ *
+ * If the tables ever drift (manual SQL, restored backups), rebuild them with
+ * {@code java services.RevenueRollup --rebuild}.
+ *
+ * @author Group04
+ * @version 1.0
+ */
+public class RevenueRollup {
+
+    private static final String DAY_SQL =
+        "INSERT INTO revenue_daily (day, order_count, revenue) VALUES (?, ?, ?) " +
+        "ON DUPLICATE KEY UPDATE order_count = order_count + VALUES(order_count), revenue = revenue + VALUES(revenue)";
+
+    private static final String DELIVERED_SQL =
+        "INSERT INTO revenue_daily (day, delivered_count, delivered_revenue) VALUES (?, ?, ?) " +
+        "ON DUPLICATE KEY UPDATE delivered_count = delivered_count + VALUES(delivered_count), " +
+        "delivered_revenue = delivered_revenue + VALUES(delivered_revenue)";
+
+    private static final String PRODUCT_SQL =
+        "INSERT INTO revenue_product (product_id, revenue, qty_kg, line_count) VALUES (?, ?, ?, ?) " +
+        "ON DUPLICATE KEY UPDATE revenue = revenue + VALUES(revenue), qty_kg = qty_kg + VALUES(qty_kg), " +
+        "line_count = line_count + VALUES(line_count)";
+
+    /**
+     * Adds (sign = 1) or removes (sign = -1) one order from both rollups.
+     * Runs on the caller's connection so it commits or rolls back with the order.
+     *
+     * @param conn connection with the open order transaction
+     * @param day requested delivery day of the order
+     * @param totalCost order total as stored in orderinfo.total_cost
+     * @param lines order lines as stored in orderiteminfo
+     * @param sign 1 when an order is placed, -1 when it is cancelled
+     */
+    static void applyOrder(Connection conn, LocalDate day, BigDecimal totalCost, List<Line> lines, int sign) throws SQLException {
+        BigDecimal factor = BigDecimal.valueOf(sign);
+        try (PreparedStatement pstmt = conn.prepareStatement(DAY_SQL)) {
+            pstmt.setObject(1, day);
+            pstmt.setInt(2, sign);
+            pstmt.setBigDecimal(3, totalCost.multiply(factor));
+            pstmt.executeUpdate();
+        }
+        if (lines.isEmpty()) return;
+
+        // One batch, rewritten into a single multi-row upsert by the driver
+        try (PreparedStatement pstmt = conn.prepareStatement(PRODUCT_SQL)) {
+            for (Line line : lines) {
+                pstmt.setInt(1, line.productId);
+                pstmt.setBigDecimal(2, line.lineTotal.multiply(factor));
+                pstmt.setBigDecimal(3, line.amountKg.multiply(factor));
+                pstmt.setInt(4, sign);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    /**
+     * One order line with the exact decimal values written to (or read from)
+     * orderiteminfo, so placing and cancelling an order cancel out to the cent.
+     */
+    static final class Line {
+        final int productId;
+        final BigDecimal amountKg;
+        final BigDecimal lineTotal;
+
+        Line(int productId, BigDecimal amountKg, BigDecimal lineTotal) {
+            this.productId = productId;
+            this.amountKg = amountKg;
+            this.lineTotal = lineTotal;
+        }
+    }
+
+    /**
+     * Moves an order into (sign = 1) or out of (sign = -1) the delivered figures of its day.
+     *
+     * @param conn connection with the open status-change transaction
+     * @param day requested delivery day of the order
+     * @param totalCost order total
+     * @param sign 1 when the order becomes DELIVERED, -1 when it stops being DELIVERED
+     */
+    static void applyDelivery(Connection conn, LocalDate day, double totalCost, int sign) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(DELIVERED_SQL)) {
+            pstmt.setObject(1, day);
+            pstmt.setInt(2, sign);
+            pstmt.setDouble(3, sign * totalCost);
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Recomputes both rollup tables from orderinfo / orderiteminfo in one transaction.
+     *
+     * @return true if the rebuild committed
+     */
+    public static boolean rebuild() {
+        String[] statements = {
+            "DELETE FROM revenue_daily",
+            "INSERT INTO revenue_daily (day, order_count, revenue, delivered_count, delivered_revenue) " +
+                "SELECT DATE(o.requested_delivery_time), COUNT(*), SUM(o.total_cost), " +
+                "SUM(o.status = 'DELIVERED'), SUM(CASE WHEN o.status = 'DELIVERED' THEN o.total_cost ELSE 0 END) " +
+                "FROM orderinfo o WHERE o.status <> 'CANCELLED' GROUP BY DATE(o.requested_delivery_time)",
+            "DELETE FROM revenue_product",
+            "INSERT INTO revenue_product (product_id, revenue, qty_kg, line_count) " +
+                "SELECT oi.product_id, SUM(oi.line_total), SUM(oi.amount_kg), COUNT(*) " +
+                "FROM orderiteminfo oi JOIN orderinfo o ON o.id = oi.order_id " +
+                "WHERE o.status <> 'CANCELLED' GROUP BY oi.product_id"
+        };
+
+        Connection conn = null;
+        try {
+            conn = DatabaseAdapter.getConnection();
+            if (conn == null) return false;
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                for (String sql : statements) {
+                    stmt.executeUpdate(sql);
+                }
+            }
+            conn.commit();
+            return true;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            try { if (conn != null) conn.rollback(); } catch (SQLException ex) { ex.printStackTrace(); }
+            return false;
+        } finally {
+            try { if (conn != null) { conn.setAutoCommit(true); conn.close(); } } catch (SQLException e) {}
+        }
+    }
+
+    /**
+     * Command line rebuild: {@code java services.RevenueRollup --rebuild}
+     */
+    public static void main(String[] args) {
+        if (args.length == 0 || !"--rebuild".equals(args[0])) {
+            System.out.println("Usage: RevenueRollup --rebuild");
+            return;
+        }
+        try {
+            System.out.println(rebuild() ? "Revenue rollups rebuilt." : "Rebuild failed, rollups left unchanged.");
+        } finally {
+            DatabaseAdapter.shutdown();
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package services;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LRU cache of prepared statements for one physical connection.
+ *
+ * The pool routes every conn.prepareStatement(sql) through this cache, so all
+ * DAOs in services reuse the server-side statement for identical SQL text
+ * instead of having it parsed again. Closing a cached statement only clears
+ * its parameters and hands it back; the physical statement is closed when it
+ * is evicted or when its connection leaves the pool.
+ *
+ * Not thread-safe on purpose: a connection is leased to one thread at a time.
+ *
+ * @author Group04
+ * @version 1.0
+ */
+class StatementCache {
+
+    // Counters are shared by all connections so the whole pool can be tuned at once
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong MISSES = new AtomicLong();
+    private static final AtomicLong EVICTIONS = new AtomicLong();
+
+    private final Connection physical;
+    private final int capacity;
+    private final LinkedHashMap<String, Entry> entries;
+
+    StatementCache(Connection physical, int capacity) {
+        this.physical = physical;
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<String, Entry>(capacity, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() <= StatementCache.this.capacity) return false;
+                EVICTIONS.incrementAndGet();
+                eldest.getValue().evict();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Returns a prepared statement for the SQL text, reusing a cached one when possible.
+     *
+     * @param sql SQL text (used as the cache key)
+     * @param autoGeneratedKeys Statement.RETURN_GENERATED_KEYS / NO_GENERATED_KEYS, or null if not given
+     * @return statement proxy whose close() returns it to the cache
+     */
+    PreparedStatement prepare(String sql, Integer autoGeneratedKeys) throws SQLException {
+        String key = (autoGeneratedKeys != null && autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS)
+            ? "[keys] " + sql : sql;
+
+        Entry entry = entries.get(key);
+        if (entry != null && !entry.inUse) {
+            HITS.incrementAndGet();
+            return entry.borrow();
+        }
+
+        MISSES.incrementAndGet();
+        PreparedStatement ps = (autoGeneratedKeys == null)
+            ? physical.prepareStatement(sql)
+            : physical.prepareStatement(sql, autoGeneratedKeys);
+
+        if (entry != null) {
+            // Same SQL already borrowed on this connection (nested use): hand out an uncached one
+            return ps;
+        }
+        Entry created = new Entry(ps);
+        entries.put(key, created);
+        return created.borrow();
+    }
+
+    /**
+     * Close every cached statement. Used when the physical connection is discarded.
+     */
+    void closeAll() {
+        for (Entry e : new ArrayList<>(entries.values())) {
+            e.evict();
+        }
+        entries.clear();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    public static long getHits() { return HITS.get(); }
+    public static long getMisses() { return MISSES.get(); }
+    public static long getEvictions() { return EVICTIONS.get(); }
+
+    /**
+     * @return human readable hit/miss summary for diagnostics
+     */
+    public static String describeStats() {
+        long h = HITS.get();
+        long m = MISSES.get();
+        double ratio = (h + m) == 0 ? 0.0 : (100.0 * h / (h + m));
+        return String.format("StatementCache[hits=%d, misses=%d, evictions=%d, hitRatio=%.1f%%]",
+            h, m, EVICTIONS.get(), ratio);
+    }
+
+    /**
+     * One cached physical statement.
+     */
+    private static final class Entry {
+        final PreparedStatement statement;
+        boolean inUse = false;
+        boolean evicted = false;
+
+        Entry(PreparedStatement statement) {
+            this.statement = statement;
+        }
+
+        PreparedStatement borrow() {
+            inUse = true;
+            return (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[] { PreparedStatement.class },
+                new Borrow(this));
+        }
+
+        void giveBack() {
+            try {
+                ResultSet open = statement.getResultSet();
+                if (open != null) open.close();
+                statement.clearParameters();
+                statement.clearBatch();
+            } catch (SQLException e) {
+                // A statement that cannot be reset must not be reused
+                evicted = true;
+            }
+            inUse = false;
+            if (evicted) closeQuietly();
+        }
+
+        void evict() {
+            evicted = true;
+            if (!inUse) closeQuietly();
+        }
+
+        private void closeQuietly() {
+            try { statement.close(); } catch (SQLException ignore) { }
+        }
+    }
+
+    /**
+     * Handler for one borrow of a cached statement; close() returns it to the cache.
+     */
+    private static final class Borrow implements InvocationHandler {
+        private final Entry entry;
+        private boolean closed = false;
+
+        Borrow(Entry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        entry.giveBack();
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || entry.statement.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + entry.statement + "]";
+                default:
+                    break;
+            }
+            if (closed) throw new SQLException("Statement is closed.");
+            try {
+                return method.invoke(entry.statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package services;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time-limited stock holds for products sitting in shopping carts.
+ *
+ * Every product that has been put into a cart gets an in-memory ledger with
+ * its stock (as last read from productinfo.stock_kg) and the amount currently
+ * held by carts; the difference is what can still be promised to other
+ * customers. Each ledger is guarded by its own lock, so holds on different
+ * products never wait for each other. Amounts are kept in whole grams.
+ *
+ * A hold lasts {@link #HOLD_TTL_MS} from its last change. A background
+ * sweeper gives expired holds back; the cart keeps its line and
+ * {@link #ensureHeld} takes the stock again at checkout if it is still there.
+ * The database remains the final authority: OrderDAO still decrements stock
+ * with an oversell check, and reports the committed stock back through
+ * {@link #commit} so the ledgers follow productinfo.
+ *
+ * @author Group04
+ * @version 1.0
+ */
+public class StockReservations {
+
+    static final long HOLD_TTL_MS = 15 * 60 * 1000L;
+    private static final long SWEEP_INTERVAL_MS = 30 * 1000L;
+
+    private static final String STOCK_SQL = "SELECT stock_kg FROM productinfo WHERE id = ?";
+
+    /**
+     * Stock and held amount of one product, guarded by its own monitor.
+     */
+    private static final class Ledger {
+        long stockGrams;
+        long heldGrams;
+        boolean stale;
+
+        Ledger(long stockGrams) {
+            this.stockGrams = stockGrams;
+        }
+
+        long available() {
+            return stockGrams - heldGrams;
+        }
+    }
+
+    /**
+     * One customer's hold on one product.
+     */
+    private static final class Hold {
+        long grams;
+        long expiresAt;
+    }
+
+    private static final Map<Integer, Ledger> ledgers = new ConcurrentHashMap<>();
+
+    // user id -> product id -> hold; lock the inner map before any ledger
+    private static final Map<Integer, Map<Integer, Hold>> holds = new ConcurrentHashMap<>();
+
+    private static final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "stock-hold-sweeper");
+        t.setDaemon(true);
+        return t;
+    });
+
+    static {
+        sweeper.scheduleWithFixedDelay(StockReservations::releaseExpired,
+                                       SWEEP_INTERVAL_MS, SWEEP_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Holds {@code quantityKg} more of a product for a customer's cart and
+     * renews the customer's hold on it.
+     *
+     * @param userId customer
+     * @param productId product
+     * @param quantityKg additional quantity
+     * @param fallbackStockKg stock to assume if productinfo cannot be read
+     * @return false if not enough unheld stock is left
+     */
+    public static boolean hold(int userId, int productId, double quantityKg, double fallbackStockKg) {
+        long grams = toGrams(quantityKg);
+        Ledger ledger = ledger(productId, fallbackStockKg);
+        while (true) {
+            Map<Integer, Hold> userHolds = holds.computeIfAbsent(userId, id -> new HashMap<>());
+            synchronized (userHolds) {
+                // Retired meanwhile by releaseAll or the sweeper; take the new one
+                if (holds.get(userId) != userHolds) continue;
+                synchronized (ledger) {
+                    if (ledger.available() < grams) return false;
+                    ledger.heldGrams += grams;
+                }
+                Hold hold = userHolds.computeIfAbsent(productId, id -> new Hold());
+                hold.grams += grams;
+                hold.expiresAt = System.currentTimeMillis() + HOLD_TTL_MS;
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Gives back a customer's hold on a product (cart line removed).
+     *
+     * @param userId customer
+     * @param productId product
+     */
+    public static void release(int userId, int productId) {
+        Map<Integer, Hold> userHolds = holds.get(userId);
+        if (userHolds == null) return;
+        synchronized (userHolds) {
+            Hold hold = userHolds.remove(productId);
+            if (hold != null) giveBack(productId, hold.grams);
+        }
+    }
+
+    /**
+     * Gives back every hold of a customer (cart cleared or session ended).
+     *
+     * @param userId customer
+     */
+    public static void releaseAll(int userId) {
+        Map<Integer, Hold> userHolds = holds.get(userId);
+        if (userHolds == null) return;
+        synchronized (userHolds) {
+            holds.remove(userId, userHolds);
+            for (Map.Entry<Integer, Hold> e : userHolds.entrySet()) {
+                giveBack(e.getKey(), e.getValue().grams);
+            }
+            userHolds.clear();
+        }
+    }
+
+    /**
+     * Makes sure the customer holds the given quantities before checkout,
+     * taking stock again for holds that expired or were never placed (carts
+     * restored from an earlier session) and renewing the rest.
+     *
+     * @param userId customer
+     * @param qtyByProduct cart quantity per product id
+     * @return false if some product no longer has enough unheld stock
+     */
+    public static boolean ensureHeld(int userId, Map<Integer, Double> qtyByProduct) {
+        for (Map.Entry<Integer, Double> e : qtyByProduct.entrySet()) {
+            long wanted = toGrams(e.getValue());
+            long missing;
+            Map<Integer, Hold> userHolds = holds.get(userId);
+            if (userHolds == null) {
+                missing = wanted;
+            } else {
+                synchronized (userHolds) {
+                    Hold hold = userHolds.get(e.getKey());
+                    missing = (hold == null) ? wanted : wanted - hold.grams;
+                    if (hold != null) hold.expiresAt = System.currentTimeMillis() + HOLD_TTL_MS;
+                }
+            }
+            if (missing > 0 && !hold(userId, e.getKey(), missing / 1000.0, 0.0)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reconciles after an order was committed: the customer's holds on the
+     * ordered products are consumed and each ledger takes over the stock
+     * productinfo held at commit time.
+     *
+     * @param userId customer who placed the order
+     * @param stockAfterKg committed productinfo.stock_kg per ordered product
+     */
+    static void commit(int userId, Map<Integer, Double> stockAfterKg) {
+        Map<Integer, Hold> userHolds = holds.get(userId);
+        Map<Integer, Hold> consumed = new HashMap<>();
+        if (userHolds != null) {
+            synchronized (userHolds) {
+                for (Integer productId : stockAfterKg.keySet()) {
+                    Hold hold = userHolds.remove(productId);
+                    if (hold != null) consumed.put(productId, hold);
+                }
+            }
+        }
+        for (Map.Entry<Integer, Double> e : stockAfterKg.entrySet()) {
+            Ledger ledger = ledgers.get(e.getKey());
+            if (ledger == null) continue;
+            Hold hold = consumed.get(e.getKey());
+            // One step, so the sold quantity is never counted as free in between
+            synchronized (ledger) {
+                if (hold != null) ledger.heldGrams = Math.max(0, ledger.heldGrams - hold.grams);
+                ledger.stockGrams = toGrams(e.getValue());
+                ledger.stale = false;
+            }
+        }
+    }
+
+    /**
+     * Marks a product's stock as changed outside an order (owner edit,
+     * cancellation, failed order); it is re-read before the next hold.
+     * Holds already placed are kept.
+     *
+     * @param productId product
+     */
+    public static void invalidate(int productId) {
+        Ledger ledger = ledgers.get(productId);
+        if (ledger == null) return;
+        synchronized (ledger) {
+            ledger.stale = true;
+        }
+    }
+
+    /**
+     * @param productId product
+     * @return kg that can still be put into carts, or -1 if the product has no ledger yet
+     */
+    public static double getAvailable(int productId) {
+        Ledger ledger = ledgers.get(productId);
+        if (ledger == null) return -1;
+        synchronized (ledger) {
+            return Math.max(0, ledger.available()) / 1000.0;
+        }
+    }
+
+    // Returns the ledger of a product, loading (or re-reading) its stock first if needed
+    private static Ledger ledger(int productId, double fallbackStockKg) {
+        Ledger ledger = ledgers.get(productId);
+        if (ledger != null) {
+            boolean stale;
+            synchronized (ledger) {
+                stale = ledger.stale;
+            }
+            if (!stale) return ledger;
+        }
+
+        double stockKg = readStock(productId, fallbackStockKg);
+        if (ledger == null) {
+            Ledger loaded = new Ledger(toGrams(stockKg));
+            ledger = ledgers.putIfAbsent(productId, loaded);
+            if (ledger == null) return loaded;
+        }
+        synchronized (ledger) {
+            if (ledger.stale) {
+                ledger.stockGrams = toGrams(stockKg);
+                ledger.stale = false;
+            }
+        }
+        return ledger;
+    }
+
+    private static double readStock(int productId, double fallbackStockKg) {
+        try (Connection conn = DatabaseAdapter.getConnection()) {
+            if (conn == null) return fallbackStockKg;
+            try (PreparedStatement pstmt = conn.prepareStatement(STOCK_SQL)) {
+                pstmt.setInt(1, productId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    return rs.next() ? rs.getDouble(1) : 0.0;
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return fallbackStockKg;
+        }
+    }
+
+    private static void giveBack(int productId, long grams) {
+        Ledger ledger = ledgers.get(productId);
+        if (ledger == null) return;
+        synchronized (ledger) {
+            ledger.heldGrams = Math.max(0, ledger.heldGrams - grams);
+        }
+    }
+
+    // Sweeper task: gives back holds whose TTL ran out
+    private static void releaseExpired() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<Integer, Map<Integer, Hold>> user : holds.entrySet()) {
+            Map<Integer, Hold> userHolds = user.getValue();
+            synchronized (userHolds) {
+                List<Integer> expired = new ArrayList<>();
+                for (Map.Entry<Integer, Hold> e : userHolds.entrySet()) {
+                    if (e.getValue().expiresAt <= now) expired.add(e.getKey());
+                }
+                for (Integer productId : expired) {
+                    giveBack(productId, userHolds.remove(productId).grams);
+                }
+                if (userHolds.isEmpty()) holds.remove(user.getKey(), userHolds);
+            }
+        }
+    }
+
+    private static long toGrams(double kg) {
+        return Math.round(kg * 1000.0);
+    }
+}
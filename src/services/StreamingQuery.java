@@ -0,0 +1,115 @@
+package services;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Runs a query in MySQL streaming mode for the DAOs' large reads.
+ *
+ * By default Connector/J buffers the whole result set in memory before the
+ * first rs.next() returns. A forward-only, read-only statement with fetch size
+ * Integer.MIN_VALUE makes the driver hand rows over one at a time instead, so
+ * reports and exports run in constant memory whatever the table size.
+ *
+ * The connection stays busy until the last row was read and cannot run other
+ * statements meanwhile, so callbacks that need the database simply borrow
+ * another pooled connection. Streaming statements are never put into the
+ * statement cache (only prepareStatement(sql) is cached).
+ *
+ * @author Group04
+ * @version 1.0
+ */
+final class StreamingQuery {
+
+    /**
+     * Maps the current row to an object.
+     */
+    interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    private StreamingQuery() { }
+
+    /**
+     * Hands every row to {@code action} on the calling thread.
+     * Exceptions thrown by the action stop the scan and reach the caller.
+     *
+     * @return false if the query failed
+     */
+    static <T> boolean forEach(String sql, Object[] params, RowMapper<T> mapper, Consumer<? super T> action) {
+        try (Connection conn = DatabaseAdapter.getConnection();
+             PreparedStatement pstmt = prepare(conn, sql, params);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                action.accept(mapper.map(rs));
+            }
+            return true;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Returns the rows as a lazy, sequential Stream. The stream holds a pooled
+     * connection until it is closed, so always use it in try-with-resources.
+     * A failure while reading surfaces as an IllegalStateException.
+     *
+     * @return stream of mapped rows (empty if the query could not be started)
+     */
+    static <T> Stream<T> stream(String sql, Object[] params, RowMapper<T> mapper) {
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs;
+        try {
+            conn = DatabaseAdapter.getConnection();
+            pstmt = prepare(conn, sql, params);
+            rs = pstmt.executeQuery();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            closeQuietly(pstmt, conn);
+            return Stream.empty();
+        }
+
+        Connection c = conn;
+        PreparedStatement ps = pstmt;
+        Spliterator<T> rows = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                try {
+                    if (!rs.next()) return false;
+                    action.accept(mapper.map(rs));
+                    return true;
+                } catch (SQLException e) {
+                    throw new IllegalStateException("Streaming query failed: " + e.getMessage(), e);
+                }
+            }
+        };
+        return StreamSupport.stream(rows, false).onClose(() -> {
+            try { rs.close(); } catch (SQLException ignore) { }
+            closeQuietly(ps, c);
+        });
+    }
+
+    private static PreparedStatement prepare(Connection conn, String sql, Object[] params) throws SQLException {
+        if (conn == null) throw new SQLException("No database connection.");
+        PreparedStatement pstmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        pstmt.setFetchSize(Integer.MIN_VALUE);
+        for (int i = 0; i < params.length; i++) {
+            pstmt.setObject(i + 1, params[i]);
+        }
+        return pstmt;
+    }
+
+    private static void closeQuietly(PreparedStatement pstmt, Connection conn) {
+        try { if (pstmt != null) pstmt.close(); } catch (SQLException ignore) { }
+        try { if (conn != null) conn.close(); } catch (SQLException ignore) { }
+    }
+}
@@ -0,0 +1,166 @@
+package services;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Background pipeline that downscales product images into small renditions.
+ *
+ * Product cards only show images at 90x90, so storing and loading the
+ * full-resolution upload for them wastes bandwidth and memory. When an image
+ * is uploaded, ProductDAO hands it to {@link #submit(int, byte[])}, which
+ * renders a SMALL and a MEDIUM rendition on a background thread and stores
+ * them next to the original in productinfo. {@link #backfillMissing()} does
+ * the same for rows that have no renditions yet.
+ *
+ * @author Group04
+ * @version 1.0
+ */
+public class ThumbnailService {
+
+    /**
+     * Stored image variants. ORIGINAL is the uploaded image_blob.
+     */
+    public enum Rendition {
+        SMALL(96, "image_thumb_small"),     // product cards (90x90)
+        MEDIUM(256, "image_thumb_medium"),  // product form preview
+        ORIGINAL(0, "image_blob");
+
+        private final int maxSize;
+        private final String column;
+
+        Rendition(int maxSize, String column) {
+            this.maxSize = maxSize;
+            this.column = column;
+        }
+
+        public int getMaxSize() { return maxSize; }
+        public String getColumn() { return column; }
+    }
+
+    private static final ProductDAO productDAO = new ProductDAO();
+
+    private static final ExecutorService renderer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "thumbnail-renderer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * Queue rendition generation for a freshly uploaded image.
+     *
+     * @param productId product the image belongs to
+     * @param original uploaded image bytes
+     * @return future completing once the renditions are stored
+     */
+    public static Future<?> submit(int productId, byte[] original) {
+        return renderer.submit(() -> renderAndStore(productId, original));
+    }
+
+    /**
+     * Batch mode: generate renditions for every product that has none yet.
+     * Rows are processed one at a time so memory stays bounded.
+     *
+     * @return number of products updated
+     */
+    public static int backfillMissing() {
+        int updated = 0;
+        List<Integer> ids = productDAO.getProductIdsMissingThumbnails();
+        for (Integer id : ids) {
+            byte[] original = productDAO.getProductImage(id, Rendition.ORIGINAL);
+            if (original != null && renderAndStore(id, original)) {
+                updated++;
+            }
+        }
+        return updated;
+    }
+
+    /**
+     * Queue {@link #backfillMissing()} on the background renderer thread.
+     */
+    public static Future<Integer> backfillMissingAsync() {
+        return renderer.submit(ThumbnailService::backfillMissing);
+    }
+
+    /**
+     * Downscale an image so its longer side is at most maxSize pixels.
+     * Images with transparency are encoded as PNG, others as JPEG.
+     *
+     * @param original encoded source image
+     * @param maxSize target size of the longer side
+     * @return encoded rendition, or null if the source cannot be decoded
+     */
+    public static byte[] render(byte[] original, int maxSize) throws IOException {
+        BufferedImage src = ImageIO.read(new ByteArrayInputStream(original));
+        if (src == null) return null; // unsupported format
+
+        int w = src.getWidth();
+        int h = src.getHeight();
+        double scale = Math.min(1.0, (double) maxSize / Math.max(w, h));
+        int targetW = Math.max(1, (int) Math.round(w * scale));
+        int targetH = Math.max(1, (int) Math.round(h * scale));
+        boolean alpha = src.getColorModel().hasAlpha();
+
+        // Halve repeatedly before the last step; a single big bilinear step looks aliased
+        BufferedImage current = src;
+        int cw = w;
+        int ch = h;
+        do {
+            cw = Math.max(targetW, cw / 2);
+            ch = Math.max(targetH, ch / 2);
+            BufferedImage step = new BufferedImage(cw, ch, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = step.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(current, 0, 0, cw, ch, null);
+            g.dispose();
+            current = step;
+        } while (cw != targetW || ch != targetH);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(current, alpha ? "png" : "jpg", out);
+        return out.toByteArray();
+    }
+
+    private static boolean renderAndStore(int productId, byte[] original) {
+        try {
+            byte[] small = render(original, Rendition.SMALL.getMaxSize());
+            byte[] medium = render(original, Rendition.MEDIUM.getMaxSize());
+            if (small == null || medium == null) {
+                System.err.println("Thumbnail: unsupported image format for product #" + productId);
+                return false;
+            }
+            boolean ok = productDAO.updateThumbnails(productId, small, medium);
+            if (ok) ProductImageCache.invalidate(productId);
+            return ok;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Thumbnail generation failed for product #" + productId + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Command line batch mode: {@code java services.ThumbnailService --backfill}
+     */
+    public static void main(String[] args) {
+        if (args.length == 0 || !"--backfill".equals(args[0])) {
+            System.out.println("Usage: ThumbnailService --backfill");
+            return;
+        }
+        try {
+            int n = backfillMissing();
+            System.out.println("Thumbnails generated for " + n + " product(s).");
+        } finally {
+            DatabaseAdapter.shutdown();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package services;
+
+import models.User;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Id-keyed cache of {@link User} rows with a time-to-live.
+ *
+ * Chat screens look up the same handful of users over and over. Entries
+ * expire after a TTL (greengrocer.userCacheTtlMs, default 5 minutes) so
+ * changes made by another client eventually show up; writes made through
+ * UserDAO invalidate the affected entries immediately.
+ *
+ * @author Group04
+ * @version 1.0
+ */
+public class UserCache {
+
+    private static final long TTL_MS = Long.getLong("greengrocer.userCacheTtlMs", 5 * 60_000L);
+
+    private static final Map<Integer, Entry> users = new ConcurrentHashMap<>();
+
+    /**
+     * @param userId user id
+     * @return cached user, or null if absent or expired
+     */
+    public static User get(int userId) {
+        Entry e = users.get(userId);
+        if (e == null) return null;
+        if (e.isExpired()) {
+            users.remove(userId, e);
+            return null;
+        }
+        return e.user;
+    }
+
+    public static void put(User user) {
+        if (user != null) users.put(user.getId(), new Entry(user));
+    }
+
+    public static void invalidate(int userId) {
+        users.remove(userId);
+    }
+
+    public static void clear() {
+        users.clear();
+    }
+
+    private static final class Entry {
+        final User user;
+        final long expiresAt;
+
+        Entry(User user) {
+            this.user = user;
+            this.expiresAt = System.currentTimeMillis() + TTL_MS;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAt;
+        }
+    }
+}
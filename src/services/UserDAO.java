@@ -37,7 +37,13 @@ public class UserDAO {
         return getUsersByRole("carrier");
     }
 
+    /**
+     * Returns a user by id, served from {@link UserCache} when possible.
+     */
     public User getUserById(int id) {
+        User cached = UserCache.get(id);
+        if (cached != null) return cached;
+
         String sql = "SELECT * FROM userinfo WHERE id = ?";
         try (Connection conn = DatabaseAdapter.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
@@ -45,7 +51,9 @@ public class UserDAO {
             pstmt.setInt(1, id);
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
-                    return mapRowToUser(rs);
+                    User user = mapRowToUser(rs);
+                    UserCache.put(user);
+                    return user;
                 }
             }
         } catch (SQLException e) {
@@ -65,6 +73,8 @@ public class UserDAO {
         } catch (SQLException e) {
             e.printStackTrace();
             return false;
+        } finally {
+            UserCache.invalidate(userId);
         }
     }
 
@@ -74,7 +84,7 @@ public class UserDAO {
      * @return mapped User
      * @throws SQLException on SQL error
      */
-    private User mapRowToUser(ResultSet rs) throws SQLException {
+    static User mapRowToUser(ResultSet rs) throws SQLException {
         User user = new User(
             rs.getInt("id"),
             rs.getString("username"),
@@ -147,6 +157,8 @@ public class UserDAO {
         } catch (SQLException e) {
             e.printStackTrace();
             return false;
+        } finally {
+            UserCache.invalidate(user.getId());
         }
     }
 
@@ -163,6 +175,8 @@ public class UserDAO {
         } catch (SQLException e) {
             e.printStackTrace();
             return false;
+        } finally {
+            UserCache.clear(); // keyed by id, not username
         }
     }
 }
\ No newline at end of file
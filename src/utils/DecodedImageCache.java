@@ -0,0 +1,111 @@
+package utils;
+
+import javafx.scene.image.Image;
+
+import java.io.ByteArrayInputStream;
+import java.lang.ref.SoftReference;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of decoded JavaFX images for product cards and forms.
+ *
+ * Decoding a JPEG/PNG is far more expensive than building a card, so images
+ * are decoded once at the size they are displayed and reused. Entries are
+ * keyed by product id, a hash of the image bytes (so a replaced image is
+ * decoded again) and the requested size. The map is LRU-bounded and values
+ * are soft references, so the GC can reclaim them under memory pressure.
+ *
+ * @author Group04
+ * @version 1.0
+ */
+public final class DecodedImageCache {
+
+    private static final int MAX_ENTRIES = 256;
+
+    private static final Map<Key, SoftReference<Image>> cache =
+        new LinkedHashMap<Key, SoftReference<Image>>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, SoftReference<Image>> eldest) {
+                return size() > MAX_ENTRIES;
+            }
+        };
+
+    private static long hits = 0;
+    private static long decodes = 0;
+
+    private DecodedImageCache() { }
+
+    /**
+     * Returns the decoded image for a product, decoding it only on a miss.
+     *
+     * @param productId product id
+     * @param bytes encoded image bytes (may be null)
+     * @param width display width the image is scaled to
+     * @param height display height the image is scaled to
+     * @return decoded image, or null if there are no bytes or they cannot be decoded
+     */
+    public static synchronized Image get(int productId, byte[] bytes, double width, double height) {
+        if (bytes == null || bytes.length == 0) return null;
+
+        Key key = new Key(productId, Arrays.hashCode(bytes), width, height);
+        SoftReference<Image> ref = cache.get(key);
+        Image image = (ref != null) ? ref.get() : null;
+        if (image != null) {
+            hits++;
+            return image;
+        }
+
+        // Decode directly at display size (preserve ratio, smooth scaling)
+        decodes++;
+        image = new Image(new ByteArrayInputStream(bytes), width, height, true, true);
+        if (image.isError()) {
+            cache.remove(key);
+            return null;
+        }
+        cache.put(key, new SoftReference<>(image));
+        return image;
+    }
+
+    public static synchronized void clear() {
+        cache.clear();
+    }
+
+    /**
+     * @return hit/decode summary for diagnostics
+     */
+    public static synchronized String describeStats() {
+        return String.format("DecodedImageCache[entries=%d, hits=%d, decodes=%d]", cache.size(), hits, decodes);
+    }
+
+    private static final class Key {
+        final int productId;
+        final int contentHash;
+        final double width;
+        final double height;
+
+        Key(int productId, int contentHash, double width, double height) {
+            this.productId = productId;
+            this.contentHash = contentHash;
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key k = (Key) o;
+            return productId == k.productId && contentHash == k.contentHash
+                && Double.compare(width, k.width) == 0 && Double.compare(height, k.height) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            int h = 31 * productId + contentHash;
+            h = 31 * h + Double.hashCode(width);
+            return 31 * h + Double.hashCode(height);
+        }
+    }
+}
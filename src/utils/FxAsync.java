@@ -0,0 +1,130 @@
+package utils;
+
+import javafx.application.Platform;
+import javafx.scene.Node;
+import javafx.stage.WindowEvent;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Hands results of background work back to the JavaFX application thread.
+ *
+ * Use {@link #deliver} for one-off calls and a {@link Latest} per screen
+ * element for requests that replace each other (search keystrokes, refresh
+ * buttons): starting a new request cancels the previous one and a late result
+ * from a superseded request is never shown.
+ *
+ * @author Group04
+ * @version 1.0
+ */
+public final class FxAsync {
+
+    private FxAsync() { }
+
+    /**
+     * Calls onSuccess or onError on the FX thread once the future completes.
+     * Cancelled futures call neither.
+     *
+     * @param future background work
+     * @param onSuccess receives the result on the FX thread
+     * @param onError receives the failure cause on the FX thread (may be null)
+     * @return the same future
+     */
+    public static <T> CompletableFuture<T> deliver(CompletableFuture<T> future,
+                                                   Consumer<? super T> onSuccess,
+                                                   Consumer<Throwable> onError) {
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) return;
+            Platform.runLater(() -> {
+                if (error == null) {
+                    onSuccess.accept(result);
+                } else {
+                    reportError(unwrap(error), onError);
+                }
+            });
+        });
+        return future;
+    }
+
+    /**
+     * Runs an action once the window showing the node is closed, e.g. to
+     * close subscriptions. Works even if the node is not in a scene yet.
+     *
+     * @param node any node of the screen
+     * @param action cleanup to run on the FX thread
+     */
+    public static void onWindowHidden(Node node, Runnable action) {
+        node.sceneProperty().addListener((obs, oldScene, scene) -> {
+            if (scene != null) attach(scene, action);
+        });
+        if (node.getScene() != null) attach(node.getScene(), action);
+    }
+
+    private static void attach(javafx.scene.Scene scene, Runnable action) {
+        scene.windowProperty().addListener((obs, oldWindow, window) -> {
+            if (window != null) window.addEventHandler(WindowEvent.WINDOW_HIDDEN, e -> action.run());
+        });
+        if (scene.getWindow() != null) {
+            scene.getWindow().addEventHandler(WindowEvent.WINDOW_HIDDEN, e -> action.run());
+        }
+    }
+
+    private static void reportError(Throwable cause, Consumer<Throwable> onError) {
+        if (cause instanceof CancellationException) return;
+        if (onError != null) {
+            onError.accept(cause);
+        } else {
+            cause.printStackTrace();
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return (error instanceof CompletionException && error.getCause() != null) ? error.getCause() : error;
+    }
+
+    /**
+     * Tracks the most recent request of one kind. Only the newest request's
+     * result reaches the callbacks; older ones are cancelled.
+     *
+     * Must be used from the FX thread.
+     */
+    public static final class Latest {
+
+        private CompletableFuture<?> current;
+        private long generation = 0;
+
+        /**
+         * Cancels the previous request and starts a new one.
+         *
+         * @param work starts the background work (e.g. an AsyncDAO call)
+         * @param onSuccess receives the result on the FX thread
+         * @param onError receives the failure cause on the FX thread (may be null)
+         */
+        public <T> void submit(Supplier<CompletableFuture<T>> work,
+                               Consumer<? super T> onSuccess,
+                               Consumer<Throwable> onError) {
+            cancel();
+            long mine = ++generation;
+            CompletableFuture<T> future = work.get();
+            current = future;
+            deliver(future,
+                result -> { if (mine == generation) onSuccess.accept(result); },
+                error -> { if (mine == generation) reportError(error, onError); });
+        }
+
+        /**
+         * Cancels the outstanding request, if any, so its result is ignored.
+         */
+        public void cancel() {
+            generation++;
+            if (current != null) {
+                current.cancel(false);
+                current = null;
+            }
+        }
+    }
+}